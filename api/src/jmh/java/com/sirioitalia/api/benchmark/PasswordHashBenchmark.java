@@ -0,0 +1,80 @@
+package com.sirioitalia.api.benchmark;
+
+import com.sirioitalia.api.util.PBKDF2PasswordEncoder;
+import com.sirioitalia.api.util.PasswordHash;
+import com.sirioitalia.api.util.PasswordHashingExecutor;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Login capacity per core: compare the single threaded score with the all-cores score to see how PBKDF2 scales.
+ * Run with "-bm sample" to get latency percentiles instead of throughput.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PasswordHashBenchmark {
+    private static final String PASSWORD = "Azerty93";
+
+    private String storedHash;
+    private PBKDF2PasswordEncoder callerThreadEncoder;
+    private PasswordHashingExecutor hashingExecutor;
+    private PBKDF2PasswordEncoder pooledEncoder;
+
+    @Setup
+    public void setUp() throws Exception {
+        storedHash = PasswordHash.createHash(PASSWORD);
+        callerThreadEncoder = new PBKDF2PasswordEncoder();
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        hashingExecutor = new PasswordHashingExecutor(cores, cores * 4, 60_000);
+        pooledEncoder = new PBKDF2PasswordEncoder(hashingExecutor, Duration.ZERO, 0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        hashingExecutor.shutdown();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String createHash() throws Exception {
+        return PasswordHash.createHash(PASSWORD);
+    }
+
+    // Registrations also share the SecureRandom that draws the salts
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String createHashAllCores() throws Exception {
+        return PasswordHash.createHash(PASSWORD);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean verifyPassword() throws Exception {
+        return PasswordHash.verifyPassword(PASSWORD, storedHash);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean verifyPasswordAllCores() throws Exception {
+        return PasswordHash.verifyPassword(PASSWORD, storedHash);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean encoderMatches() {
+        return callerThreadEncoder.matches(PASSWORD, storedHash);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean encoderMatchesThroughHashingPool() {
+        return pooledEncoder.matches(PASSWORD, storedHash);
+    }
+}
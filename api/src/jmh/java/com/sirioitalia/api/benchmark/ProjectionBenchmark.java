@@ -0,0 +1,138 @@
+package com.sirioitalia.api.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.sirioitalia.api.embeddable.Dimension;
+import com.sirioitalia.api.model.Category;
+import com.sirioitalia.api.model.Color;
+import com.sirioitalia.api.model.Furniture;
+import com.sirioitalia.api.model.Item;
+import com.sirioitalia.api.projection.ColorProjection;
+import com.sirioitalia.api.projection.ItemProjection;
+import com.sirioitalia.api.projection.ItemShortView;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning one item into its short representation and reading every property, as Jackson does: the former
+ * SpEL-backed projection, the default-method projection that replaced it, and the constructor-expression DTO.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProjectionBenchmark {
+    private final ProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
+    private Item item;
+
+    @Setup
+    public void setUp() {
+        Dimension dimension = new Dimension();
+        dimension.setWidth(90);
+        dimension.setLength(190);
+        dimension.setHeight(40);
+
+        item = Item.builder()
+                .id(42L)
+                .reference("12ORD0HKPZ67JG0PB5")
+                .price(199.99)
+                .stock(10)
+                .color(new Color(3L, "Salmon", "#FA8072"))
+                .furniture(Furniture.builder()
+                        .id(12L)
+                        .label("Lit Venezia")
+                        .description("Lit en bois massif")
+                        .category(new Category(1L, "Lit"))
+                        .dimension(dimension)
+                        .weight(35)
+                        .build())
+                .build();
+    }
+
+    @Benchmark
+    public void spelProjection(Blackhole blackhole) {
+        SpelShort projection = projectionFactory.createProjection(SpelShort.class, item);
+
+        blackhole.consume(projection.getId());
+        consumeColor(projection.getColor(), blackhole);
+        blackhole.consume(projection.getFurniture());
+        blackhole.consume(projection.getLabel());
+        blackhole.consume(projection.getDescription());
+        blackhole.consume(projection.getCategory());
+        blackhole.consume(projection.getPrice());
+        blackhole.consume(projection.getReference());
+    }
+
+    @Benchmark
+    public void defaultMethodProjection(Blackhole blackhole) {
+        ItemProjection.Short projection = projectionFactory.createProjection(ItemProjection.Short.class, item);
+
+        blackhole.consume(projection.getId());
+        consumeColor(projection.getColor(), blackhole);
+        blackhole.consume(projection.getFurnitureId());
+        blackhole.consume(projection.getLabel());
+        blackhole.consume(projection.getDescription());
+        blackhole.consume(projection.getCategory());
+        blackhole.consume(projection.getPrice());
+        blackhole.consume(projection.getReference());
+    }
+
+    @Benchmark
+    public void constructorExpressionDto(Blackhole blackhole) {
+        // What Hibernate does for each row of a "select new" query
+        ItemShortView view = new ItemShortView(item.getId(), item.getColor().getId(), item.getColor().getLabel(),
+                item.getColor().getHexadecimalCode(), item.getFurniture().getId(), item.getFurniture().getLabel(),
+                item.getFurniture().getDescription(), item.getFurniture().getCategory().getLabel(), item.getPrice(),
+                item.getReference());
+
+        blackhole.consume(view.getId());
+        consumeColor(view.getColor(), blackhole);
+        blackhole.consume(view.getFurnitureId());
+        blackhole.consume(view.getLabel());
+        blackhole.consume(view.getDescription());
+        blackhole.consume(view.getCategory());
+        blackhole.consume(view.getPrice());
+        blackhole.consume(view.getReference());
+    }
+
+    private static void consumeColor(ColorProjection color, Blackhole blackhole) {
+        blackhole.consume(color.getId());
+        blackhole.consume(color.getLabel());
+        blackhole.consume(color.getHexadecimalCode());
+    }
+
+    /**
+     * ItemProjection.Short as it was before the SpEL expressions were removed.
+     */
+    public interface SpelShort {
+        Long getId();
+
+        ColorProjection getColor();
+
+        @JsonProperty("furnitureId")
+        @Value("#{target.getFurniture().getId()}")
+        String getFurniture();
+
+        @JsonProperty("label")
+        @Value("#{target.getFurniture().getLabel()}")
+        String getLabel();
+
+        @JsonProperty("description")
+        @Value("#{target.getFurniture().getDescription()}")
+        String getDescription();
+
+        @JsonProperty("category")
+        @Value("#{target.getFurniture().getCategory().getLabel()}")
+        String getCategory();
+
+        Double getPrice();
+
+        String getReference();
+    }
+}
@@ -0,0 +1,58 @@
+package com.sirioitalia.api.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sirioitalia.api.security.JwtTokenProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mirrors CustomAuthenticationFilter.successfulAuthentication without the user lookup:
+ * two signed tokens and the JSON response body.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenIssuanceBenchmark {
+    private static final String SUBJECT = "admin@gmail.com";
+    private static final String ISSUER = "http://localhost:8080/auth/login";
+    private static final List<String> ROLES = List.of("ROLE_ADMIN");
+
+    private final JwtTokenProvider jwtTokenProvider = new JwtTokenProvider("secret", new SimpleMeterRegistry());
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Benchmark
+    @Threads(1)
+    public Map<String, String> issueTokens() throws IOException {
+        return issue();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Map<String, String> issueTokensAllCores() throws IOException {
+        return issue();
+    }
+
+    private Map<String, String> issue() throws IOException {
+        Map<String, String> tokens = new HashMap<>();
+
+        tokens.put("jwt", jwtTokenProvider.createAccessToken(SUBJECT, ISSUER, ROLES));
+        tokens.put("jwt_refresh", jwtTokenProvider.createRefreshToken(SUBJECT, ISSUER));
+        tokens.put("userRight", "ROLE_ADMIN");
+        tokens.put("sessionUserId", "1");
+
+        // ObjectMapper closes its target, as it does with the servlet output stream
+        objectMapper.writeValue(OutputStream.nullOutputStream(), tokens);
+
+        return tokens;
+    }
+}
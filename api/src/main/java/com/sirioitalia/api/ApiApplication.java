@@ -5,30 +5,69 @@ import com.sirioitalia.api.model.Category;
 import com.sirioitalia.api.model.Color;
 import com.sirioitalia.api.model.Role;
 import com.sirioitalia.api.model.User;
+import com.sirioitalia.api.security.InMemoryRateLimitStore;
+import com.sirioitalia.api.security.RateLimitStore;
 import com.sirioitalia.api.service.CategoryService;
 import com.sirioitalia.api.service.ColorService;
 import com.sirioitalia.api.service.RoleService;
 import com.sirioitalia.api.service.UserService;
 import com.sirioitalia.api.util.PBKDF2PasswordEncoder;
+import com.sirioitalia.api.util.PasswordHashingExecutor;
+import com.sirioitalia.api.util.ReferenceGenerator;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
+import java.time.Duration;
 import java.time.LocalDate;
 
 
 @SpringBootApplication
+// Runs outside the transaction interceptor so cache evictions happen once the write is committed
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)
+@EnableScheduling
 public class ApiApplication {
 
     public static void main(String[] args) {
         SpringApplication.run(ApiApplication.class, args);
     }
 
+    @Bean(destroyMethod = "shutdown")
+    PasswordHashingExecutor passwordHashingExecutor(
+            @Value("${sirio.security.hashing.pool-size:0}") int poolSize,
+            @Value("${sirio.security.hashing.queue-capacity:64}") int queueCapacity,
+            @Value("${sirio.security.hashing.timeout-ms:5000}") long timeoutMillis) {
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+
+        return new PasswordHashingExecutor(threads, queueCapacity, timeoutMillis);
+    }
+
+    @Bean
+    PBKDF2PasswordEncoder passwordEncoder(
+            PasswordHashingExecutor passwordHashingExecutor,
+            @Value("${sirio.security.hashing.verified-cache-ttl-seconds:0}") long verifiedCacheTtlSeconds,
+            @Value("${sirio.security.hashing.verified-cache-size:10000}") long verifiedCacheSize) {
+        return new PBKDF2PasswordEncoder(passwordHashingExecutor, Duration.ofSeconds(verifiedCacheTtlSeconds),
+                verifiedCacheSize);
+    }
+
+    /**
+     * Buckets of the login rate limiter, local to this instance. Defining a store backed by a shared service instead
+     * makes the limits hold across instances.
+     */
+    @Bean
+    RateLimitStore rateLimitStore(@Value("${sirio.security.login-rate-limit.max-keys:100000}") long maxKeys) {
+        return new InMemoryRateLimitStore(maxKeys);
+    }
+
     @Bean
-    PasswordEncoder passwordEncoder() {
-        return new PBKDF2PasswordEncoder();
+    ReferenceGenerator referenceGenerator(@Value("${sirio.reference.node-id:0}") int nodeId) {
+        return new ReferenceGenerator(nodeId);
     }
 
     CommandLineRunner run(UserService userService, RoleService roleService, ColorService colorService
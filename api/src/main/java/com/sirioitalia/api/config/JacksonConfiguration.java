@@ -0,0 +1,21 @@
+package com.sirioitalia.api.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Lets Jackson write entities whose associations are lazy. Serialization never triggers a load: an association the
+ * fetch plan of the endpoint did not initialize is written as its id, or as null for a collection.
+ */
+@Configuration
+public class JacksonConfiguration {
+    @Bean
+    Module hibernateModule() {
+        Hibernate5Module hibernateModule = new Hibernate5Module();
+        hibernateModule.enable(Hibernate5Module.Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS);
+
+        return hibernateModule;
+    }
+}
@@ -0,0 +1,148 @@
+package com.sirioitalia.api.config;
+
+import com.sirioitalia.api.util.ReadWriteRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Routes {@code @Transactional(readOnly = true)} work to the read replicas listed in
+ * {@code sirio.datasource.replica.urls}, replacing the single data source Spring Boot would otherwise build from
+ * {@code spring.datasource.*}. That one becomes the primary, which keeps serving writes, reads outside of read-only
+ * transactions and reads that no healthy replica can take.
+ * <p>
+ * Cached reads, such as colors and categories, run in read-write transactions: the cache would keep the rows of a
+ * lagging replica long after it caught up.
+ */
+@Configuration
+@ConditionalOnProperty(name = "sirio.datasource.replica.urls")
+public class ReadReplicaConfiguration {
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource primaryDataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        primaryDataSource.setPoolName("primary");
+
+        return primaryDataSource;
+    }
+
+    /**
+     * Replica pools time out quickly and start even when their replica is down: an unreachable replica only takes
+     * itself out of rotation. They are not beans, so they are bound to the registry here to get the usual Hikari
+     * metrics, tagged with their pool name.
+     */
+    @Bean
+    ReadWriteRoutingDataSource readWriteRoutingDataSource(
+            @Qualifier("primaryDataSource") DataSource primaryDataSource,
+            DataSourceProperties properties,
+            @Value("${sirio.datasource.replica.urls}") List<String> replicaUrls,
+            @Value("${sirio.datasource.replica.username:${spring.datasource.username}}") String username,
+            @Value("${sirio.datasource.replica.password:${spring.datasource.password}}") String password,
+            @Value("${sirio.datasource.replica.pool-size:10}") int poolSize,
+            @Value("${sirio.datasource.replica.max-lag-ms:1000}") long maxLagMillis,
+            @Value("${sirio.datasource.replica.connection-timeout-ms:1000}") long connectionTimeoutMillis,
+            @Value("${sirio.datasource.replica.lag-check-interval-ms:1000}") long lagCheckIntervalMillis,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        List<DataSource> replicas = new ArrayList<>(replicaUrls.size());
+
+        for (String replicaUrl : replicaUrls) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setDriverClassName(properties.determineDriverClassName());
+            replica.setJdbcUrl(replicaUrl.trim());
+            replica.setUsername(username);
+            replica.setPassword(password);
+            replica.setMaximumPoolSize(poolSize);
+            replica.setReadOnly(true);
+            replica.setConnectionTimeout(connectionTimeoutMillis);
+            replica.setValidationTimeout(Math.min(connectionTimeoutMillis, 500));
+            replica.setInitializationFailTimeout(-1);
+            meterRegistry.ifAvailable(registry ->
+                    replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+            replicas.add(replica);
+        }
+
+        ReadWriteRoutingDataSource readWriteRoutingDataSource = new ReadWriteRoutingDataSource(primaryDataSource,
+                replicas, maxLagMillis, ReadReplicaConfiguration::authenticatedUser);
+        readWriteRoutingDataSource.startLagChecks(Duration.ofMillis(lagCheckIntervalMillis));
+
+        return readWriteRoutingDataSource;
+    }
+
+    /**
+     * The data source everything else uses. Connections are only fetched on first use, once the read-only flag of
+     * the transaction is known.
+     */
+    @Bean
+    @Primary
+    DataSource dataSource(ReadWriteRoutingDataSource readWriteRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(readWriteRoutingDataSource);
+    }
+
+    /**
+     * Spring holds the JDBC connection of a session until the session closes, which with open-in-view is the end of
+     * the request. A read-only transaction would then pin the replica connection for a later write in the same
+     * request, so connections are given back after every transaction instead.
+     */
+    @Bean
+    HibernatePropertiesCustomizer releaseConnectionsAfterTransaction() {
+        return hibernateProperties -> hibernateProperties.put("hibernate.connection.handling_mode",
+                "DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION");
+    }
+
+    /**
+     * Users read their own writes from the primary; anonymous requests and background work read from the replicas.
+     */
+    private static String authenticatedUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken
+                || !authentication.isAuthenticated()) {
+            return null;
+        }
+
+        return authentication.getName();
+    }
+
+    @Bean
+    MeterBinder replicaMetrics(ReadWriteRoutingDataSource readWriteRoutingDataSource) {
+        return registry -> {
+            for (int i = 0; i < readWriteRoutingDataSource.getReplicaCount(); i++) {
+                int replica = i;
+
+                Gauge.builder("sirio.datasource.replica.lag", readWriteRoutingDataSource,
+                                routing -> routing.getReplicaLagMillis(replica))
+                        .tag("replica", String.valueOf(replica))
+                        .baseUnit("milliseconds")
+                        .register(registry);
+                Gauge.builder("sirio.datasource.replica.healthy", readWriteRoutingDataSource,
+                                routing -> routing.isReplicaHealthy(replica) ? 1 : 0)
+                        .tag("replica", String.valueOf(replica))
+                        .register(registry);
+            }
+        };
+    }
+}
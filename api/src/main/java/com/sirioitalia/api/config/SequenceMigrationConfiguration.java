@@ -0,0 +1,35 @@
+package com.sirioitalia.api.config;
+
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.DataSourceInitializer;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+
+/**
+ * Brings the increments of the id sequences in line with their {@code allocationSize} before Hibernate starts.
+ * <p>
+ * Hibernate compares both when it builds the session factory and refuses to start on a mismatch, so this cannot be
+ * part of {@code schema.sql}, which only runs once the session factory exists.
+ */
+@Configuration
+public class SequenceMigrationConfiguration {
+    private static final String SEQUENCE_MIGRATION = "sequenceMigration";
+
+    @Bean(SEQUENCE_MIGRATION)
+    DataSourceInitializer sequenceMigration(DataSource dataSource) {
+        DataSourceInitializer initializer = new DataSourceInitializer();
+        initializer.setDataSource(dataSource);
+        initializer.setDatabasePopulator(new ResourceDatabasePopulator(new ClassPathResource("db/sequences.sql")));
+
+        return initializer;
+    }
+
+    @Bean
+    static EntityManagerFactoryDependsOnPostProcessor entityManagerFactoryDependsOnSequenceMigration() {
+        return new EntityManagerFactoryDependsOnPostProcessor(SEQUENCE_MIGRATION);
+    }
+}
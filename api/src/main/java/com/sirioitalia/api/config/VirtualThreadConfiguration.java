@@ -0,0 +1,145 @@
+package com.sirioitalia.api.config;
+
+import com.sirioitalia.api.util.ConnectionLimitingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.coyote.AbstractProtocol;
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Opt-in mode running every request, and therefore the transactional service calls it makes, on its own virtual
+ * thread instead of Tomcat's bounded worker pool.
+ * <p>
+ * Virtual threads only exist from Java 21 on while the build still targets 16, so the executor is looked up
+ * reflectively; on an older runtime the mode logs a warning and Tomcat keeps its platform threads. The connection
+ * pool is sized for the database rather than for the number of threads, and a {@link ConnectionLimitingDataSource}
+ * queues the surplus of virtual threads in front of it.
+ */
+@Configuration
+@ConditionalOnProperty(name = "sirio.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfiguration implements DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadConfiguration.class);
+
+    private final ExecutorService requestExecutor = newVirtualThreadPerTaskExecutor();
+
+    @Bean
+    TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer(
+            @Value("${sirio.threads.virtual.max-connections:20000}") int maxConnections) {
+        return protocolHandler -> {
+            if (requestExecutor == null) {
+                return;
+            }
+
+            protocolHandler.setExecutor(requestExecutor);
+
+            // Idle keep-alive connections cost a socket, not a thread, so many more of them can be held open
+            if (protocolHandler instanceof AbstractProtocol) {
+                ((AbstractProtocol<?>) protocolHandler).setMaxConnections(maxConnections);
+            }
+        };
+    }
+
+    /**
+     * Sizes the Hikari pool and puts the connection limiter in front of it, only when requests do run on virtual
+     * threads: on platform threads Tomcat's pool already bounds the callers and Hikari's defaults apply.
+     * <p>
+     * Without an explicit size the pool gets {@code 2 * cores + 1} connections, the usual starting point for a
+     * database on local storage: past that, more connections add contention rather than throughput.
+     */
+    @Bean
+    static BeanPostProcessor connectionLimitingPostProcessor(
+            @Value("${sirio.datasource.pool-size:0}") int configuredPoolSize) {
+        boolean virtualThreadsAvailable = virtualThreadsAvailable();
+
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!virtualThreadsAvailable || !(bean instanceof HikariDataSource)) {
+                    return bean;
+                }
+
+                HikariDataSource hikariDataSource = (HikariDataSource) bean;
+                int poolSize = configuredPoolSize > 0
+                        ? configuredPoolSize
+                        : 2 * Runtime.getRuntime().availableProcessors() + 1;
+
+                hikariDataSource.setMaximumPoolSize(poolSize);
+                hikariDataSource.setMinimumIdle(poolSize);
+                log.info("Connection pool {} sized to {} connections for virtual threads", beanName, poolSize);
+
+                return ConnectionLimitingDataSource.inFrontOf(hikariDataSource);
+            }
+        };
+    }
+
+    @Bean
+    MeterBinder connectionLimiterMetrics(ObjectProvider<DataSource> dataSources) {
+        // The limiter may sit behind other data sources, such as the read/write router
+        return registry -> dataSources.stream()
+                .filter(ConnectionLimitingDataSource.class::isInstance)
+                .map(ConnectionLimitingDataSource.class::cast)
+                .forEach(limiter -> {
+                    Gauge.builder("sirio.datasource.limiter.available", limiter,
+                            ConnectionLimitingDataSource::getAvailablePermits).register(registry);
+                    Gauge.builder("sirio.datasource.limiter.waiting", limiter,
+                            ConnectionLimitingDataSource::getQueueLength).register(registry);
+                });
+    }
+
+    @Override
+    public void destroy() {
+        if (requestExecutor != null) {
+            requestExecutor.shutdown();
+        }
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        ExecutorService executor = tryNewVirtualThreadPerTaskExecutor();
+
+        if (executor == null) {
+            log.warn("Virtual threads are not available on Java {}, requests stay on platform threads",
+                    System.getProperty("java.version"));
+        }
+
+        return executor;
+    }
+
+    /**
+     * Runs before the configuration itself is created, post-processors being instantiated first.
+     */
+    private static boolean virtualThreadsAvailable() {
+        ExecutorService executor = tryNewVirtualThreadPerTaskExecutor();
+
+        if (executor == null) {
+            return false;
+        }
+
+        executor.shutdown();
+
+        return true;
+    }
+
+    private static ExecutorService tryNewVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            // Missing before Java 19, and behind --enable-preview on 19 and 20
+            return null;
+        }
+    }
+}
@@ -3,7 +3,6 @@ package com.sirioitalia.api.controller;
 import com.sirioitalia.api.exception.ResourceException;
 import com.sirioitalia.api.model.Cart;
 import com.sirioitalia.api.projection.CartProjection;
-import com.sirioitalia.api.projection.ItemProjection;
 import com.sirioitalia.api.service.CartService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -26,15 +25,15 @@ public class CartController {
     }
 
     @PostMapping
-    public ResponseEntity<CartProjection> addItemInCart(@Valid @RequestBody Cart cartDetails) throws ResourceException {
-        CartProjection createdItemInCart = cartService.addItemInCart(cartDetails);
+    public ResponseEntity<CartProjection.Line> addItemInCart(@Valid @RequestBody Cart cartDetails) throws ResourceException {
+        CartProjection.Line createdItemInCart = cartService.addItemInCart(cartDetails);
 
 
         return new ResponseEntity<>(createdItemInCart, HttpStatus.CREATED);
     }
 
     @DeleteMapping("/{userId}/{itemId}")
-    public Iterable<CartProjection> deleteItemInCart(@PathVariable Long userId, @PathVariable Long itemId) throws ResourceException {
+    public Iterable<CartProjection.Line> deleteItemInCart(@PathVariable Long userId, @PathVariable Long itemId) throws ResourceException {
 
         cartService.deleteItemInCart(userId, itemId);
 
@@ -2,11 +2,14 @@ package com.sirioitalia.api.controller;
 
 import com.sirioitalia.api.exception.ResourceException;
 import com.sirioitalia.api.model.Category;
+import com.sirioitalia.api.service.CatalogVersionTracker;
+import com.sirioitalia.api.service.CatalogVersionTracker.Resource;
 import com.sirioitalia.api.service.CategoryService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
 import java.util.List;
@@ -15,19 +18,29 @@ import java.util.List;
 @RequestMapping("/categories")
 public class CategoryController {
     CategoryService categoryService;
+    private final CatalogVersionTracker catalogVersionTracker;
 
     @Autowired
-    public CategoryController(CategoryService categoryService) {
+    public CategoryController(CategoryService categoryService, CatalogVersionTracker catalogVersionTracker) {
         this.categoryService = categoryService;
+        this.catalogVersionTracker = catalogVersionTracker;
     }
 
     @GetMapping
-    public List<Category> getCategories() throws ResourceException {
+    public List<Category> getCategories(WebRequest webRequest) throws ResourceException {
+        if (catalogVersionTracker.checkNotModified(webRequest, Resource.CATEGORIES)) {
+            return null;
+        }
+
         return categoryService.getCategories();
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Category> getCategory(@PathVariable Long id) throws ResourceException {
+    public ResponseEntity<Category> getCategory(@PathVariable Long id, WebRequest webRequest) throws ResourceException {
+        if (catalogVersionTracker.checkNotModified(webRequest, Resource.CATEGORIES)) {
+            return null;
+        }
+
         Category category = categoryService.getCategoryById(id);
 
         return new ResponseEntity<>(category, HttpStatus.FOUND);
@@ -2,11 +2,14 @@ package com.sirioitalia.api.controller;
 
 import com.sirioitalia.api.exception.ResourceException;
 import com.sirioitalia.api.model.Color;
+import com.sirioitalia.api.service.CatalogVersionTracker;
+import com.sirioitalia.api.service.CatalogVersionTracker.Resource;
 import com.sirioitalia.api.service.ColorService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
 import java.util.List;
@@ -15,19 +18,29 @@ import java.util.List;
 @RequestMapping("/colors")
 public class ColorController {
     private final ColorService colorService;
+    private final CatalogVersionTracker catalogVersionTracker;
 
     @Autowired
-    public ColorController(ColorService colorService) {
+    public ColorController(ColorService colorService, CatalogVersionTracker catalogVersionTracker) {
         this.colorService = colorService;
+        this.catalogVersionTracker = catalogVersionTracker;
     }
 
     @GetMapping
-    public List<Color> getColors() throws ResourceException {
+    public List<Color> getColors(WebRequest webRequest) throws ResourceException {
+        if (catalogVersionTracker.checkNotModified(webRequest, Resource.COLORS)) {
+            return null;
+        }
+
         return colorService.getColors();
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Color> getColor(@PathVariable Long id) throws ResourceException {
+    public ResponseEntity<Color> getColor(@PathVariable Long id, WebRequest webRequest) throws ResourceException {
+        if (catalogVersionTracker.checkNotModified(webRequest, Resource.COLORS)) {
+            return null;
+        }
+
         Color color = colorService.getColorById(id);
 
         return new ResponseEntity<>(color, HttpStatus.FOUND);
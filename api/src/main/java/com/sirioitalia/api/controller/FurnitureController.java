@@ -5,31 +5,67 @@ import com.sirioitalia.api.model.Cart;
 import com.sirioitalia.api.model.Furniture;
 import com.sirioitalia.api.projection.CartProjection;
 import com.sirioitalia.api.projection.FurnitureProjection;
+import com.sirioitalia.api.service.CatalogVersionTracker;
+import com.sirioitalia.api.service.CatalogVersionTracker.Resource;
+import com.sirioitalia.api.service.CatalogExportService;
 import com.sirioitalia.api.service.FurnitureService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.util.List;
 
 @RestController
 @RequestMapping("/furnitures")
 public class FurnitureController {
     private final FurnitureService furnitureService;
+    private final CatalogExportService catalogExportService;
+    private final CatalogVersionTracker catalogVersionTracker;
 
     @Autowired
-    public FurnitureController(FurnitureService furnitureService) {
+    public FurnitureController(FurnitureService furnitureService, CatalogExportService catalogExportService,
+                               CatalogVersionTracker catalogVersionTracker) {
         this.furnitureService = furnitureService;
+        this.catalogExportService = catalogExportService;
+        this.catalogVersionTracker = catalogVersionTracker;
     }
 
     @GetMapping
-    public Iterable<FurnitureProjection> getFurnitures() {
+    @Transactional(readOnly = true)
+    public Iterable<FurnitureProjection> getFurnitures(WebRequest webRequest) {
+        if (catalogVersionTracker.checkNotModified(webRequest, Resource.CATALOG)) {
+            return null;
+        }
+
         return furnitureService.getFurnitures();
     }
 
+    @GetMapping("/export")
+    public void exportCatalog(@RequestParam(defaultValue = "ndjson") String format, HttpServletResponse response)
+            throws ResourceException, IOException {
+        CatalogExportService.Format exportFormat = CatalogExportService.Format.fromValue(format);
+
+        response.setContentType(exportFormat.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"catalog." + exportFormat.getExtension() + "\"");
+        catalogExportService.exportCatalog(exportFormat, response.getOutputStream());
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<FurnitureProjection> getFurnitureById(@PathVariable Long id) throws ResourceException {
+    @Transactional(readOnly = true)
+    public ResponseEntity<FurnitureProjection> getFurnitureById(@PathVariable Long id, WebRequest webRequest)
+            throws ResourceException {
+        if (catalogVersionTracker.checkNotModified(webRequest, Resource.CATALOG)) {
+            return null;
+        }
+
         FurnitureProjection foundedFurniture = furnitureService.getFurnitureById(id);
 
         return new ResponseEntity<>(foundedFurniture, HttpStatus.FOUND);
@@ -43,6 +79,14 @@ public class FurnitureController {
         return new ResponseEntity<>(createdFurniture, HttpStatus.CREATED);
     }
 
+    @PostMapping("/bulk")
+    public ResponseEntity<Iterable<FurnitureProjection>> createFurnitures(@Valid @RequestBody List<Furniture> furnituresDetails)
+            throws ResourceException {
+        Iterable<FurnitureProjection> createdFurnitures = furnitureService.createFurnitures(furnituresDetails);
+
+        return new ResponseEntity<>(createdFurnitures, HttpStatus.CREATED);
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<Furniture> updateFurniture(@PathVariable Long id, @RequestBody Furniture furnitureDetails)
             throws ResourceException {
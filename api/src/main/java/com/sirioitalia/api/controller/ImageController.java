@@ -2,22 +2,55 @@ package com.sirioitalia.api.controller;
 
 import com.sirioitalia.api.exception.ResourceException;
 import com.sirioitalia.api.model.Image;
+import com.sirioitalia.api.projection.ImageContent;
+import com.sirioitalia.api.projection.ImageUploadResult;
 import com.sirioitalia.api.service.ImageService;
+import com.sirioitalia.api.service.ImageVariantPipeline;
+import com.sirioitalia.api.util.ImageFormat;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.servlet.ServletFileUpload;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
 
 @RestController
 @RequestMapping("/images")
 public class ImageController {
+    // Request attributes through which Tomcat hands a file to the connector's sendfile support
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     private final ImageService imageService;
+    private final long maxUploadParts;
 
     @Autowired
-    public ImageController(ImageService imageService) {
+    public ImageController(ImageService imageService,
+                           @Value("${sirio.images.bulk.max-parts:1000}") long maxUploadParts) {
         this.imageService = imageService;
+        this.maxUploadParts = maxUploadParts;
     }
 
     @GetMapping
@@ -33,6 +66,73 @@ public class ImageController {
         return new ResponseEntity<>(foundedImage, HttpStatus.FOUND);
     }
 
+    @PutMapping("/{id}/content")
+    public ResponseEntity<Image> uploadImageContent(@PathVariable Long id, HttpServletRequest request)
+            throws ResourceException, IOException {
+        Image updatedImage = imageService.storeImageContent(id, request.getContentType(), request.getInputStream());
+
+        return new ResponseEntity<>(updatedImage, HttpStatus.OK);
+    }
+
+    @GetMapping("/{id}/content")
+    public void getImageContent(@PathVariable Long id, @RequestParam(required = false) String variant,
+                                HttpServletRequest request, HttpServletResponse response)
+            throws ResourceException, IOException {
+        ImageContent content = imageService.getImageContent(id,
+                variant == null ? null : ImageVariantPipeline.Variant.fromValue(variant));
+        String eTag = "\"" + content.getContentKey() + "\"";
+
+        // Content is served from the API origin: browsers must neither sniff it into something else nor run it
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        response.setHeader("Content-Security-Policy", "sandbox");
+
+        if (new ServletWebRequest(request, response).checkNotModified(eTag)) {
+            return;
+        }
+
+        long length = content.getContentLength();
+        long start = 0;
+        long end = length - 1;
+        List<HttpRange> ranges = parseRanges(request, eTag);
+
+        // Multiple ranges are rare for images; answering them with the full content is allowed
+        if (ranges.size() == 1) {
+            HttpRange range = ranges.get(0);
+            start = range.getRangeStart(length);
+            end = range.getRangeEnd(length);
+
+            if (start >= length || start > end) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+
+                return;
+            }
+
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+
+        long count = end - start + 1;
+
+        // Rows stored before only raster formats were accepted may hold anything, they are downloaded, never rendered
+        if (ImageFormat.fromContentType(content.getContentType()).isPresent()) {
+            response.setContentType(content.getContentType());
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline");
+        } else {
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment");
+        }
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setContentLengthLong(count);
+
+        if (HttpMethod.HEAD.matches(request.getMethod())) {
+            return;
+        }
+
+        transferContent(content.getPath(), start, count, request, response);
+    }
+
     @PostMapping
     public ResponseEntity<Image> createImage(@Valid @RequestBody Image imageDetails) throws ResourceException {
         Image createdImage = imageService.createImage(imageDetails);
@@ -41,6 +141,31 @@ public class ImageController {
         return new ResponseEntity<>(createdImage, HttpStatus.CREATED);
     }
 
+    /**
+     * Bulk upload as {@code multipart/form-data}, one file part per image, named after the reference of its item.
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<ImageUploadResult> uploadImages(HttpServletRequest request) throws ResourceException {
+        if (!ServletFileUpload.isMultipartContent(request)) {
+            throw new ResourceException("400", "Expected a multipart/form-data request", HttpStatus.BAD_REQUEST);
+        }
+
+        FileItemIterator parts;
+
+        try {
+            ServletFileUpload upload = new ServletFileUpload();
+            upload.setFileCountMax(maxUploadParts);
+            parts = upload.getItemIterator(request);
+        } catch (FileUploadException | IOException e) {
+            throw new ResourceException("Multipart upload could not be read", e, HttpStatus.BAD_REQUEST);
+        }
+
+        ImageUploadResult result = imageService.uploadImages(parts);
+
+
+        return new ResponseEntity<>(result, HttpStatus.CREATED);
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<HttpStatus> deleteImage(@PathVariable Long id) throws ResourceException {
         imageService.deleteImage(id);
@@ -48,4 +173,52 @@ public class ImageController {
 
         return new ResponseEntity<>(HttpStatus.GONE);
     }
+
+    private static List<HttpRange> parseRanges(HttpServletRequest request, String eTag) {
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+
+        if (range == null || (ifRange != null && !ifRange.equals(eTag))) {
+            return Collections.emptyList();
+        }
+
+        try {
+            return HttpRange.parseRanges(range);
+        } catch (IllegalArgumentException e) {
+            // A malformed Range header is ignored rather than rejected
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Lets Tomcat send the file with sendfile when the connector supports it, which keeps the bytes out of the JVM.
+     * Otherwise falls back to {@link FileChannel#transferTo}.
+     */
+    private static void transferContent(Path path, long start, long count, HttpServletRequest request,
+                                        HttpServletResponse response) throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, path.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+
+            return;
+        }
+
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+
+            while (remaining > 0) {
+                long transferred = file.transferTo(position, remaining, target);
+
+                if (transferred <= 0) {
+                    throw new EOFException("Image content ended before " + (start + count) + " bytes: " + path);
+                }
+
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
 }
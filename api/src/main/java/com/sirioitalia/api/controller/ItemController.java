@@ -3,32 +3,74 @@ package com.sirioitalia.api.controller;
 import com.sirioitalia.api.exception.ResourceException;
 import com.sirioitalia.api.model.Item;
 import com.sirioitalia.api.projection.ItemProjection;
+import com.sirioitalia.api.projection.ItemShortView;
+import com.sirioitalia.api.service.CatalogVersionTracker;
+import com.sirioitalia.api.service.CatalogVersionTracker.Resource;
 import com.sirioitalia.api.service.ItemService;
+import com.sirioitalia.api.util.CursorPage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
+import java.util.List;
 
 @RestController
 @RequestMapping("/items")
 public class ItemController {
     private final ItemService itemService;
+    private final CatalogVersionTracker catalogVersionTracker;
 
     @Autowired
-    public ItemController(ItemService itemService) {
+    public ItemController(ItemService itemService, CatalogVersionTracker catalogVersionTracker) {
         this.itemService = itemService;
+        this.catalogVersionTracker = catalogVersionTracker;
     }
 
     @GetMapping
-    public Iterable<ItemProjection.Full> getItems() {
+    @Transactional(readOnly = true)
+    public Iterable<ItemProjection.Full> getItems(WebRequest webRequest) {
+        if (catalogVersionTracker.checkNotModified(webRequest, Resource.CATALOG)) {
+            return null;
+        }
+
         return itemService.getItems();
     }
 
+    @GetMapping("/short")
+    @Transactional(readOnly = true)
+    public List<ItemShortView> getItemsShort(WebRequest webRequest) {
+        if (catalogVersionTracker.checkNotModified(webRequest, Resource.CATALOG)) {
+            return null;
+        }
+
+        return itemService.getItemsShort();
+    }
+
+    @GetMapping("/page")
+    @Transactional(readOnly = true)
+    public CursorPage<ItemProjection.Full> getItemsPage(@RequestParam(required = false) String cursor,
+                                                        @RequestParam(defaultValue = "" + ItemService.DEFAULT_PAGE_SIZE) int size,
+                                                        WebRequest webRequest)
+            throws ResourceException {
+        if (catalogVersionTracker.checkNotModified(webRequest, Resource.CATALOG)) {
+            return null;
+        }
+
+        return itemService.getItemsPage(cursor, size);
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<ItemProjection.Full> getItemById(@PathVariable Long id) throws ResourceException {
+    @Transactional(readOnly = true)
+    public ResponseEntity<ItemProjection.Full> getItemById(@PathVariable Long id, WebRequest webRequest)
+            throws ResourceException {
+        if (catalogVersionTracker.checkNotModified(webRequest, Resource.CATALOG)) {
+            return null;
+        }
+
         ItemProjection.Full item = itemService.getItemById(id);
 
 
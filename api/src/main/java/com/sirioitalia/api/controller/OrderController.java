@@ -1,6 +1,7 @@
 package com.sirioitalia.api.controller;
 
 import com.sirioitalia.api.exception.ResourceException;
+import com.sirioitalia.api.exception.StockReservationException;
 import com.sirioitalia.api.model.Order;
 import com.sirioitalia.api.projection.OrderProjection;
 import com.sirioitalia.api.service.OrderService;
@@ -10,6 +11,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/orders")
@@ -28,16 +30,16 @@ public class OrderController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<OrderProjection> getOrderById(@PathVariable Long id) {
-        OrderProjection foundedOrder = orderService.getOrderById(id);
+    public ResponseEntity<OrderProjection.WithUserInfo> getOrderById(@PathVariable Long id) {
+        OrderProjection.WithUserInfo foundedOrder = orderService.getOrderById(id);
 
 
         return new ResponseEntity<>(foundedOrder, HttpStatus.FOUND);
     }
 
     @PostMapping
-    public ResponseEntity<OrderProjection> registerNewBilling(@Valid @RequestBody Order orderDetails) throws IllegalStateException {
-        OrderProjection createdOrder = orderService.createOrder(orderDetails);
+    public ResponseEntity<OrderProjection.WithoutUserInfo> registerNewBilling(@Valid @RequestBody Order orderDetails) throws IllegalStateException {
+        OrderProjection.WithoutUserInfo createdOrder = orderService.createOrder(orderDetails);
 
 
         return new ResponseEntity<>(createdOrder, HttpStatus.CREATED);
@@ -51,5 +53,12 @@ public class OrderController {
         return new ResponseEntity<>(HttpStatus.GONE);
     }
 
+    @ExceptionHandler(StockReservationException.class)
+    public ResponseEntity<Map<String, Object>> handleStockReservation(StockReservationException ex) {
+        return new ResponseEntity<>(Map.of(
+                "error_message", "Insufficient stock",
+                "failures", ex.getFailures()), HttpStatus.CONFLICT);
+    }
+
 
 }
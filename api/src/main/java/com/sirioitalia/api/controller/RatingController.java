@@ -35,17 +35,18 @@ public class RatingController {
         return new ResponseEntity<>(createdRating, HttpStatus.CREATED);
     }
 
-    @PutMapping("/{id}")
-    public ResponseEntity<Rating> updateRating(@PathVariable Long id, @Valid @RequestBody Rating ratingDetails) throws ResourceException {
-        Rating updatedRating = ratingService.updateRating(id, ratingDetails);
+    @PutMapping("/{itemId}/{userId}")
+    public ResponseEntity<Rating> updateRating(@PathVariable Long itemId, @PathVariable Long userId,
+                                               @Valid @RequestBody Rating ratingDetails) throws ResourceException {
+        Rating updatedRating = ratingService.updateRating(itemId, userId, ratingDetails);
 
 
         return new ResponseEntity<>(updatedRating, HttpStatus.OK);
     }
 
-    @DeleteMapping("/{id}")
-    public ResponseEntity<HttpStatus> deleteRating(@PathVariable Long id) throws ResourceException {
-        ratingService.deleteRating(id);
+    @DeleteMapping("/{itemId}/{userId}")
+    public ResponseEntity<HttpStatus> deleteRating(@PathVariable Long itemId, @PathVariable Long userId) throws ResourceException {
+        ratingService.deleteRating(itemId, userId);
 
 
         return new ResponseEntity<>(HttpStatus.GONE);
@@ -0,0 +1,33 @@
+package com.sirioitalia.api.controller;
+
+import com.sirioitalia.api.exception.ResourceException;
+import com.sirioitalia.api.projection.CatalogSearchResult;
+import com.sirioitalia.api.service.SearchService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/search")
+public class SearchController {
+    private final SearchService searchService;
+
+    @Autowired
+    public SearchController(SearchService searchService) {
+        this.searchService = searchService;
+    }
+
+    @GetMapping
+    public CatalogSearchResult search(@RequestParam(required = false) String q,
+                                      @RequestParam(required = false) Long categoryId,
+                                      @RequestParam(required = false) Long colorId,
+                                      @RequestParam(required = false) Double minPrice,
+                                      @RequestParam(required = false) Double maxPrice,
+                                      @RequestParam(defaultValue = "0") int offset,
+                                      @RequestParam(defaultValue = "" + SearchService.DEFAULT_LIMIT) int limit)
+            throws ResourceException {
+        return searchService.search(q, categoryId, colorId, minPrice, maxPrice, offset, limit);
+    }
+}
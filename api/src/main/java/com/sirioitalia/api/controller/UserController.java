@@ -2,12 +2,15 @@ package com.sirioitalia.api.controller;
 
 
 import com.sirioitalia.api.exception.ResourceException;
+import com.sirioitalia.api.model.OrderSummary;
 import com.sirioitalia.api.model.User;
 import com.sirioitalia.api.projection.CartProjection;
 import com.sirioitalia.api.projection.UserProjection;
 import com.sirioitalia.api.repository.UserRepository;
 import com.sirioitalia.api.service.CartService;
+import com.sirioitalia.api.service.OrderService;
 import com.sirioitalia.api.service.UserService;
+import com.sirioitalia.api.util.CursorPage;
 import com.sirioitalia.api.util.PBKDF2PasswordEncoder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -21,14 +24,16 @@ import javax.validation.Valid;
 public class UserController {
     private final UserService userService;
     private final CartService cartService;
+    private final OrderService orderService;
     private final PBKDF2PasswordEncoder passwordEncoder;
     private final UserRepository userRepository;
 
     @Autowired
-    public UserController(UserRepository userRepository, UserService userService, PBKDF2PasswordEncoder passwordEncoder, CartService cartService) {
+    public UserController(UserRepository userRepository, UserService userService, PBKDF2PasswordEncoder passwordEncoder, CartService cartService, OrderService orderService) {
         this.userService = userService;
         this.passwordEncoder = passwordEncoder;
         this.cartService = cartService;
+        this.orderService = orderService;
         this.userRepository = userRepository;
     }
 
@@ -38,10 +43,18 @@ public class UserController {
     }
 
     @GetMapping("/{id}/carts")
-    public Iterable<CartProjection> getItemsInUserCart(@PathVariable Long id) {
+    public Iterable<CartProjection.Line> getItemsInUserCart(@PathVariable Long id) {
         return cartService.getItemsInCartByUserId(id);
     }
 
+    @GetMapping("/{id}/orders")
+    public CursorPage<OrderSummary> getUserOrders(@PathVariable Long id,
+                                                  @RequestParam(required = false) String cursor,
+                                                  @RequestParam(defaultValue = "" + OrderService.DEFAULT_HISTORY_PAGE_SIZE) int size)
+            throws ResourceException {
+        return orderService.getOrderHistory(id, cursor, size);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<UserProjection.Full> getUserById(@PathVariable Long id) throws ResourceException {
         UserProjection.Full foundedUser = userService.getUserById(id);
@@ -79,7 +92,6 @@ public class UserController {
 
     @PostMapping("/register")
     public ResponseEntity<User> createUser(@Valid @RequestBody User userDetails) throws ResourceException {
-        System.out.println("hash: " + userDetails.getPasswordHash());
         User createdUser = userService.createUser(userDetails);
 
         return new ResponseEntity<>(createdUser, HttpStatus.CREATED);
@@ -0,0 +1,54 @@
+package com.sirioitalia.api.event;
+
+import java.util.Set;
+
+/**
+ * Published by catalog writes so that derived read models can refresh the affected entries once the transaction
+ * commits. Listeners re-read the given items and furnitures, and the items of the given categories and colors; item
+ * and furniture ids that no longer exist mean the entry was deleted.
+ */
+public class CatalogChangedEvent {
+    private final Set<Long> itemIds;
+    private final Set<Long> furnitureIds;
+    private final Set<Long> categoryIds;
+    private final Set<Long> colorIds;
+
+    private CatalogChangedEvent(Set<Long> itemIds, Set<Long> furnitureIds, Set<Long> categoryIds, Set<Long> colorIds) {
+        this.itemIds = itemIds;
+        this.furnitureIds = furnitureIds;
+        this.categoryIds = categoryIds;
+        this.colorIds = colorIds;
+    }
+
+    public static CatalogChangedEvent ofItems(Set<Long> itemIds) {
+        return new CatalogChangedEvent(Set.copyOf(itemIds), Set.of(), Set.of(), Set.of());
+    }
+
+    public static CatalogChangedEvent ofFurnitures(Set<Long> furnitureIds) {
+        return new CatalogChangedEvent(Set.of(), Set.copyOf(furnitureIds), Set.of(), Set.of());
+    }
+
+    public static CatalogChangedEvent ofCategories(Set<Long> categoryIds) {
+        return new CatalogChangedEvent(Set.of(), Set.of(), Set.copyOf(categoryIds), Set.of());
+    }
+
+    public static CatalogChangedEvent ofColors(Set<Long> colorIds) {
+        return new CatalogChangedEvent(Set.of(), Set.of(), Set.of(), Set.copyOf(colorIds));
+    }
+
+    public Set<Long> getItemIds() {
+        return itemIds;
+    }
+
+    public Set<Long> getFurnitureIds() {
+        return furnitureIds;
+    }
+
+    public Set<Long> getCategoryIds() {
+        return categoryIds;
+    }
+
+    public Set<Long> getColorIds() {
+        return colorIds;
+    }
+}
@@ -0,0 +1,14 @@
+package com.sirioitalia.api.exception;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+@SuppressWarnings("serial")
+public class HashingCapacityExceededException extends AuthenticationServiceException {
+    public HashingCapacityExceededException(String message) {
+        super(message);
+    }
+
+    public HashingCapacityExceededException(String message, Throwable source) {
+        super(message, source);
+    }
+}
@@ -0,0 +1,38 @@
+package com.sirioitalia.api.exception;
+
+import org.springframework.http.HttpStatus;
+
+import java.util.List;
+
+public class StockReservationException extends ResourceException {
+
+    private static final long serialVersionUID = 1L;
+    private final List<Failure> failures;
+
+    public StockReservationException(List<Failure> failures) {
+        super("409", "Insufficient stock for " + failures.size() + " order line(s)", HttpStatus.CONFLICT);
+        this.failures = List.copyOf(failures);
+    }
+
+    public List<Failure> getFailures() {
+        return failures;
+    }
+
+    public static class Failure {
+        private final Long itemId;
+        private final int requestedQuantity;
+
+        public Failure(Long itemId, int requestedQuantity) {
+            this.itemId = itemId;
+            this.requestedQuantity = requestedQuantity;
+        }
+
+        public Long getItemId() {
+            return itemId;
+        }
+
+        public int getRequestedQuantity() {
+            return requestedQuantity;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.sirioitalia.api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * One row per catalog resource, bumped in the same transaction as every write to it. Rows are seeded, read and
+ * updated with plain SQL by {@link com.sirioitalia.api.service.CatalogVersionTracker}.
+ */
+@Entity
+@Table(name = "\"catalogVersions\"")
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class CatalogVersion {
+    @Id
+    @Column(length = 16)
+    private String resource;
+
+    @Column(nullable = false)
+    private long version;
+
+    // Epoch milliseconds, truncated to the second like HTTP dates
+    @Column(name = "\"lastModified\"", nullable = false)
+    private long lastModified;
+}
@@ -0,0 +1,53 @@
+package com.sirioitalia.api.model;
+
+import com.sirioitalia.api.service.CatalogVersionTracker;
+import com.sirioitalia.api.service.CatalogVersionTracker.Resource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Marks the catalog validators stale whenever an entity they cover is written. Hibernate has Spring build the
+ * listener; the tracker is looked up lazily so that slices without it, such as repository tests, still work.
+ */
+public class CatalogVersionListener {
+    private final ObjectProvider<CatalogVersionTracker> catalogVersionTracker;
+
+    @Autowired
+    public CatalogVersionListener(ObjectProvider<CatalogVersionTracker> catalogVersionTracker) {
+        this.catalogVersionTracker = catalogVersionTracker;
+    }
+
+    @PostPersist
+    public void onPersist(Object entity) {
+        // A new account is not visible in the catalog, unlike a renamed rating publisher
+        if (!(entity instanceof User)) {
+            markChanged(entity);
+        }
+    }
+
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        markChanged(entity);
+    }
+
+    private void markChanged(Object entity) {
+        CatalogVersionTracker tracker = catalogVersionTracker.getIfAvailable();
+
+        if (tracker == null) {
+            return;
+        }
+
+        if (entity instanceof Color) {
+            tracker.markChanged(Resource.COLORS, Resource.CATALOG);
+        } else if (entity instanceof Category) {
+            tracker.markChanged(Resource.CATEGORIES, Resource.CATALOG);
+        } else {
+            tracker.markChanged(Resource.CATALOG);
+        }
+    }
+}
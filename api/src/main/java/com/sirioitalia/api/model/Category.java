@@ -1,5 +1,6 @@
 package com.sirioitalia.api.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -15,6 +16,7 @@ import javax.validation.constraints.NotEmpty;
 @AllArgsConstructor
 @NoArgsConstructor
 @Table(name = "categories")
+@EntityListeners(CatalogVersionListener.class)
 public class Category {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -24,4 +26,14 @@ public class Category {
     @NotEmpty
     @Column(nullable = false, unique = true)
     private String label;
+
+    @JsonIgnore
+    @Version
+    @Column(columnDefinition = "bigint default 0 not null")
+    private long version;
+
+    public Category(Long id, String label) {
+        this.id = id;
+        this.label = label;
+    }
 }
@@ -1,5 +1,6 @@
 package com.sirioitalia.api.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -18,6 +19,7 @@ import java.io.Serializable;
 @NoArgsConstructor
 @Data
 @Table(name = "colors")
+@EntityListeners(CatalogVersionListener.class)
 public class Color implements Serializable {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -36,4 +38,15 @@ public class Color implements Serializable {
     @NotNull
     @Column(name = "\"hexadecimalCode\"", nullable = false, unique = true)
     private String hexadecimalCode;
+
+    @JsonIgnore
+    @Version
+    @Column(columnDefinition = "bigint default 0 not null")
+    private long version;
+
+    public Color(Long id, String label, String hexadecimalCode) {
+        this.id = id;
+        this.label = label;
+        this.hexadecimalCode = hexadecimalCode;
+    }
 }
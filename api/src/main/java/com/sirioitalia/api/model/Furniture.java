@@ -1,5 +1,6 @@
 package com.sirioitalia.api.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.sirioitalia.api.embeddable.Dimension;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -21,9 +22,11 @@ import java.util.Collection;
 @Entity
 @Data
 @Table(name = "furnitures")
+@EntityListeners(CatalogVersionListener.class)
 public class Furniture implements Serializable {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "furnitures_id_seq")
+    @SequenceGenerator(name = "furnitures_id_seq", sequenceName = "furnitures_id_seq", allocationSize = 50)
     private Long id;
 
     @NotNull
@@ -39,7 +42,7 @@ public class Furniture implements Serializable {
     private String description;
 
     @NotNull
-    @ManyToOne(optional = false)
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "\"categoryId\"", nullable = false)
     private Category category;
 
@@ -52,4 +55,9 @@ public class Furniture implements Serializable {
 
     @OneToMany(mappedBy = "furniture", cascade = CascadeType.REMOVE)
     private Collection<Item> items = new ArrayList<>();
+
+    @JsonIgnore
+    @Version
+    @Column(columnDefinition = "bigint default 0 not null")
+    private long version;
 }
@@ -1,5 +1,6 @@
 package com.sirioitalia.api.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -16,16 +17,35 @@ import javax.validation.constraints.NotNull;
 @Data
 @Entity
 @Table(name = "images")
+@EntityListeners(CatalogVersionListener.class)
 public class Image {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "images_id_seq")
+    @SequenceGenerator(name = "images_id_seq", sequenceName = "images_id_seq", allocationSize = 50)
     private Long id;
 
 
     private String name;
 
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "\"contentHash\"", length = 64)
+    private String contentHash;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "\"contentType\"")
+    private String contentType;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "\"contentLength\"")
+    private Long contentLength;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Enumerated(EnumType.STRING)
+    @Column(name = "\"variantStatus\"", length = 16)
+    private ImageVariantStatus variantStatus;
+
     @NotNull
-    @ManyToOne(optional = false)
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "\"itemId\"", nullable = false, updatable = false)
     private Item item;
 }
\ No newline at end of file
@@ -0,0 +1,42 @@
+package com.sirioitalia.api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Queue entry asking for the variants of an image. There is at most one per image; storing new content resets it.
+ * Rows are claimed and updated with plain SQL by {@link com.sirioitalia.api.service.ImageVariantPipeline}.
+ */
+@Entity
+@Table(name = "\"imageVariantJobs\"", indexes = @Index(name = "imageVariantJobsDueIdx", columnList = "status, \"nextAttemptAt\""))
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class ImageVariantJob {
+    @Id
+    @Column(name = "\"imageId\"")
+    private Long imageId;
+
+    @Column(name = "\"contentHash\"", nullable = false, length = 64)
+    private String contentHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private ImageVariantStatus status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "\"nextAttemptAt\"", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "\"lockedUntil\"")
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "\"lastError\"", length = 1000)
+    private String lastError;
+}
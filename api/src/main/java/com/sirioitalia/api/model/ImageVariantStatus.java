@@ -0,0 +1,8 @@
+package com.sirioitalia.api.model;
+
+public enum ImageVariantStatus {
+    PENDING,
+    PROCESSING,
+    READY,
+    FAILED
+}
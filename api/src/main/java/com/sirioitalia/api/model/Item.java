@@ -1,9 +1,11 @@
 package com.sirioitalia.api.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.DynamicUpdate;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotEmpty;
@@ -19,10 +21,18 @@ import java.util.Collection;
 @Entity
 @Data
 @Table(name = "items")
+@DynamicUpdate
+@NamedEntityGraph(name = "Item.catalog", attributeNodes = {
+        @NamedAttributeNode("color"),
+        @NamedAttributeNode("ratingSummary"),
+        @NamedAttributeNode(value = "furniture", subgraph = "furniture")
+}, subgraphs = @NamedSubgraph(name = "furniture", attributeNodes = @NamedAttributeNode("category")))
+@EntityListeners(CatalogVersionListener.class)
 public class Item {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "items_id_seq")
+    @SequenceGenerator(name = "items_id_seq", sequenceName = "items_id_seq", allocationSize = 50)
     private Long id;
 
     @Column
@@ -42,16 +52,25 @@ public class Item {
     private Collection<Image> images = new ArrayList<>();
 
     @NotNull
-    @ManyToOne(optional = false)
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "\"furnitureId\"", nullable = false)
     private Furniture furniture;
 
 
     @NotNull
-    @ManyToOne(optional = false)
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "\"colorId\"", nullable = false)
     private Color color;
 
     @OneToMany(mappedBy = "item", cascade = CascadeType.REMOVE, orphanRemoval = true)
     private Collection<Rating> ratings = new ArrayList<>();
+
+    // The inverse side of a one-to-one cannot be proxied, so only fetch plans that join it avoid a second select
+    @OneToOne(mappedBy = "item", cascade = CascadeType.REMOVE)
+    private RatingSummary ratingSummary;
+
+    @JsonIgnore
+    @Version
+    @Column(columnDefinition = "bigint default 0 not null")
+    private long version;
 }
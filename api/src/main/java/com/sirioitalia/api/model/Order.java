@@ -5,8 +5,6 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
-import org.hibernate.annotations.Fetch;
-import org.hibernate.annotations.FetchMode;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
@@ -19,6 +17,29 @@ import java.util.Collection;
 @AllArgsConstructor
 @NoArgsConstructor
 @Table(name = "orders")
+@NamedEntityGraph(name = "Order.listing", attributeNodes = {
+        @NamedAttributeNode(value = "orderLines", subgraph = "lines")
+}, subgraphs = {
+        @NamedSubgraph(name = "lines", attributeNodes = @NamedAttributeNode(value = "item", subgraph = "item")),
+        @NamedSubgraph(name = "item", attributeNodes = {
+                @NamedAttributeNode("color"),
+                @NamedAttributeNode("ratingSummary"),
+                @NamedAttributeNode(value = "furniture", subgraph = "furniture")
+        }),
+        @NamedSubgraph(name = "furniture", attributeNodes = @NamedAttributeNode("category"))
+})
+@NamedEntityGraph(name = "Order.detail", attributeNodes = {
+        @NamedAttributeNode("user"),
+        @NamedAttributeNode(value = "orderLines", subgraph = "lines")
+}, subgraphs = {
+        @NamedSubgraph(name = "lines", attributeNodes = @NamedAttributeNode(value = "item", subgraph = "item")),
+        @NamedSubgraph(name = "item", attributeNodes = {
+                @NamedAttributeNode("color"),
+                @NamedAttributeNode("ratingSummary"),
+                @NamedAttributeNode(value = "furniture", subgraph = "furniture")
+        }),
+        @NamedSubgraph(name = "furniture", attributeNodes = @NamedAttributeNode("category"))
+})
 public class Order {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -31,13 +52,11 @@ public class Order {
     @CreationTimestamp
     private LocalDateTime orderDate;
 
-    @ManyToOne(optional = false)
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "\"userId\"", nullable = false)
-    @Fetch(FetchMode.JOIN)
     private User user;
 
-    @OneToMany(fetch = FetchType.EAGER, mappedBy = "order", cascade = CascadeType.REMOVE, orphanRemoval = true)
-    @Fetch(FetchMode.JOIN)
+    @OneToMany(mappedBy = "order", cascade = CascadeType.REMOVE, orphanRemoval = true)
     private Collection<OrderLine> orderLines = new ArrayList<>();
 
 }
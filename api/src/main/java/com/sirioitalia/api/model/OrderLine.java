@@ -5,8 +5,6 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.hibernate.annotations.Fetch;
-import org.hibernate.annotations.FetchMode;
 
 import javax.persistence.*;
 import javax.validation.constraints.Positive;
@@ -26,14 +24,13 @@ public class OrderLine {
     @Column(nullable = false)
     private Integer quantity;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @MapsId("itemId")
     @JoinColumn(name = "\"itemId\"")
     private Item item;
 
-    @ManyToOne(optional = false)
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @MapsId("orderId")
     @JoinColumn(name = "\"orderId\"", nullable = false, insertable = false, updatable = false)
-    @Fetch(FetchMode.JOIN)
     private Order order;
 }
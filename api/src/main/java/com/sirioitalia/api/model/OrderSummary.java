@@ -0,0 +1,46 @@
+package com.sirioitalia.api.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Denormalized row per order, written at checkout, so the order history of a user is read from one index without
+ * walking order lines, items and their catalog graph.
+ */
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Data
+@Table(name = "\"orderSummaries\"", indexes = @Index(name = "orderSummariesUserIdx",
+        columnList = "\"userId\", \"orderId\""))
+public class OrderSummary {
+    @Id
+    @Column(name = "\"orderId\"")
+    private Long orderId;
+
+    @JsonIgnore
+    @Column(name = "\"userId\"", nullable = false, updatable = false)
+    private Long userId;
+
+    @Column(name = "\"orderReference\"", updatable = false)
+    private String orderReference;
+
+    @Column(name = "\"orderDate\"", updatable = false)
+    private LocalDateTime orderDate;
+
+    @Column(name = "\"lineCount\"", nullable = false)
+    private int lineCount;
+
+    @Column(name = "\"itemCount\"", nullable = false)
+    private long itemCount;
+
+    @Column(nullable = false)
+    private double total;
+}
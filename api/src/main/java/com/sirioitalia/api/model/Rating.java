@@ -20,6 +20,7 @@ import java.time.LocalDateTime;
 @Entity
 @Data
 @Table(name = "\"itemRating\"")
+@EntityListeners(CatalogVersionListener.class)
 public class Rating {
     @EmbeddedId
     private RatingPK id = new RatingPK();
@@ -27,18 +28,18 @@ public class Rating {
     @Max(5)
     @Min(1)
     @Positive
-    @Column(nullable = false, updatable = false)
+    @Column(nullable = false)
     private Integer rating;
 
-    @Column(updatable = false)
+    @Column
     private String comment;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @MapsId("itemId")
     @JoinColumn(name = "\"itemId\"")
     private Item item;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @MapsId("userId")
     @JoinColumn(name = "\"userId\"")
     private User user;
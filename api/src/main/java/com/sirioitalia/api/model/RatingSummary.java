@@ -0,0 +1,51 @@
+package com.sirioitalia.api.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.*;
+
+import javax.persistence.*;
+
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Data
+@Table(name = "\"itemRatingSummary\"")
+public class RatingSummary {
+    @Id
+    @Column(name = "\"itemId\"")
+    private Long itemId;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @MapsId
+    @JoinColumn(name = "\"itemId\"")
+    private Item item;
+
+    @Column(name = "\"ratingCount\"", nullable = false)
+    private long count;
+
+    @Column(name = "\"ratingSum\"", nullable = false)
+    private long sum;
+
+    @Column(name = "\"oneStar\"", nullable = false)
+    private long oneStar;
+
+    @Column(name = "\"twoStars\"", nullable = false)
+    private long twoStars;
+
+    @Column(name = "\"threeStars\"", nullable = false)
+    private long threeStars;
+
+    @Column(name = "\"fourStars\"", nullable = false)
+    private long fourStars;
+
+    @Column(name = "\"fiveStars\"", nullable = false)
+    private long fiveStars;
+
+    public Double getAverage() {
+        return count == 0 ? null : (double) sum / count;
+    }
+}
@@ -7,8 +7,6 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
-import org.hibernate.annotations.Fetch;
-import org.hibernate.annotations.FetchMode;
 
 import javax.persistence.*;
 import javax.validation.constraints.Email;
@@ -27,6 +25,19 @@ import java.util.Collection;
 @Data
 @Table(name = "users")
 @JsonInclude(JsonInclude.Include.NON_NULL)
+@NamedEntityGraph(name = "User.profile", attributeNodes = {
+        @NamedAttributeNode("role"),
+        @NamedAttributeNode(value = "ratings", subgraph = "ratings")
+}, subgraphs = {
+        @NamedSubgraph(name = "ratings", attributeNodes = @NamedAttributeNode(value = "item", subgraph = "item")),
+        @NamedSubgraph(name = "item", attributeNodes = {
+                @NamedAttributeNode("color"),
+                @NamedAttributeNode("ratingSummary"),
+                @NamedAttributeNode(value = "furniture", subgraph = "furniture")
+        }),
+        @NamedSubgraph(name = "furniture", attributeNodes = @NamedAttributeNode("category"))
+})
+@EntityListeners(CatalogVersionListener.class)
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -63,12 +74,11 @@ public class User {
     @Column(name = "\"registrationDate\"", updatable = false)
     private LocalDateTime registrationDate;
 
-    @ManyToOne(optional = false)
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "\"roleId\"", nullable = false)
     private Role role;
 
     @OneToMany(mappedBy = "user", cascade = CascadeType.REMOVE, orphanRemoval = true)
-    @Fetch(FetchMode.JOIN)
     private Collection<Order> orders = new java.util.ArrayList<>();
 
     @OneToMany(mappedBy = "user", cascade = CascadeType.REMOVE, orphanRemoval = true)
@@ -7,6 +7,14 @@ public interface CartProjection {
         ItemProjection getItem();
     }
 
+    interface Line {
+        Long getUserId();
+
+        Long getItemId();
+
+        Integer getQuantity();
+    }
+
     interface Full {
         CartPK getCartPK();
 
@@ -0,0 +1,29 @@
+package com.sirioitalia.api.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Flat catalog row built by a JPQL constructor expression, so exported rows never enter the persistence context.
+ */
+@Getter
+@AllArgsConstructor
+public class CatalogExportRow {
+    private Long furnitureId;
+
+    private String furnitureLabel;
+
+    private String category;
+
+    private Long itemId;
+
+    private String reference;
+
+    private String color;
+
+    private String hexadecimalCode;
+
+    private double price;
+
+    private int stock;
+}
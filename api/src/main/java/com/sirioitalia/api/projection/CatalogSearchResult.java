@@ -0,0 +1,64 @@
+package com.sirioitalia.api.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class CatalogSearchResult {
+    private long total;
+
+    private List<SearchDocument> hits;
+
+    private Facets facets;
+
+    @Getter
+    @AllArgsConstructor
+    public static class Facets {
+        private List<FacetValue> categories;
+
+        private List<FacetValue> colors;
+
+        private List<PriceRange> priceRanges;
+
+        private DimensionBounds dimensions;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class FacetValue {
+        private Long id;
+
+        private String label;
+
+        private long count;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class PriceRange {
+        private double from;
+
+        private Double to;
+
+        private long count;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class DimensionBounds {
+        private double minWidth;
+
+        private double maxWidth;
+
+        private double minLength;
+
+        private double maxLength;
+
+        private double minHeight;
+
+        private double maxHeight;
+    }
+}
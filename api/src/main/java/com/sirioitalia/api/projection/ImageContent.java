@@ -0,0 +1,22 @@
+package com.sirioitalia.api.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.file.Path;
+
+/**
+ * Location and metadata of the stored bytes of an image or of one of its variants.
+ */
+@Getter
+@AllArgsConstructor
+public class ImageContent {
+    // Identifies the bytes, used as the entity tag
+    private String contentKey;
+
+    private String contentType;
+
+    private long contentLength;
+
+    private Path path;
+}
@@ -1,7 +1,11 @@
 package com.sirioitalia.api.projection;
 
+import com.sirioitalia.api.model.ImageVariantStatus;
+
 public interface ImageProjection {
     Long getId();
 
     String getName();
+
+    ImageVariantStatus getVariantStatus();
 }
\ No newline at end of file
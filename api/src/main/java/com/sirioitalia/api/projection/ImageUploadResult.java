@@ -0,0 +1,27 @@
+package com.sirioitalia.api.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk image upload: how many images were created and which parts were skipped.
+ */
+@Getter
+@AllArgsConstructor
+public class ImageUploadResult {
+    private int created;
+
+    private List<RejectedPart> rejected;
+
+    @Getter
+    @AllArgsConstructor
+    public static class RejectedPart {
+        private String reference;
+
+        private String fileName;
+
+        private String reason;
+    }
+}
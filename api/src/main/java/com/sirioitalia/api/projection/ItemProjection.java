@@ -1,34 +1,59 @@
 package com.sirioitalia.api.projection;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import org.springframework.beans.factory.annotation.Value;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
 
 import java.util.Collection;
 
 public interface ItemProjection {
+    @JsonPropertyOrder({"id", "color", "furniture", "price", "reference"})
     interface Short {
         Long getId();
 
         ColorProjection getColor();
 
-        @JsonProperty("furnitureId")
-        @Value("#{target.getFurniture().getId()}")
-        String getFurniture();
+        // Every call wraps the furniture in a new proxy, so it is read once and its fields written inline
+        @JsonUnwrapped
+        FurnitureRef getFurniture();
+
+        Double getPrice();
+        String getReference();
+    }
+
+    @JsonPropertyOrder({"furnitureId", "label", "description", "category"})
+    interface FurnitureRef {
+        @JsonIgnore
+        Long getId();
 
-        @JsonProperty("label")
-        @Value("#{target.getFurniture().getLabel()}")
         String getLabel();
 
-        @JsonProperty("description")
-        @Value("#{target.getFurniture().getDescription()}")
         String getDescription();
 
+        @JsonIgnore
+        CategoryRef getCategory();
+
+        // Default methods are called directly on the proxy, no expression is evaluated
+        @JsonProperty("furnitureId")
+        default String getFurnitureId() {
+            return String.valueOf(getId());
+        }
+
         @JsonProperty("category")
-        @Value("#{target.getFurniture().getCategory().getLabel()}")
-        String getCategory();
+        default String getCategoryLabel() {
+            return getCategory().getLabel();
+        }
+    }
+
+    interface CategoryRef {
+        String getLabel();
+    }
+
+    interface Reference {
+        Long getId();
 
-        Double getPrice();
         String getReference();
     }
 
@@ -39,6 +64,8 @@ public interface ItemProjection {
 
         Collection<RatingProjection.FromItem> getRatings();
 
+        RatingSummaryProjection getRatingSummary();
+
         ColorProjection getColor();
 
         Double getPrice();
@@ -0,0 +1,50 @@
+package com.sirioitalia.api.projection;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Same JSON as {@link ItemProjection.Short}, but filled by a JPQL constructor expression: no entity, no proxy.
+ */
+@Getter
+@JsonPropertyOrder({"id", "color", "furnitureId", "label", "description", "category", "price", "reference"})
+public class ItemShortView {
+    private final Long id;
+
+    private final ColorView color;
+
+    private final String furnitureId;
+
+    private final String label;
+
+    private final String description;
+
+    private final String category;
+
+    private final Double price;
+
+    private final String reference;
+
+    public ItemShortView(Long id, Long colorId, String colorLabel, String hexadecimalCode, Long furnitureId,
+                         String label, String description, String category, double price, String reference) {
+        this.id = id;
+        this.color = new ColorView(colorId, colorLabel, hexadecimalCode);
+        this.furnitureId = String.valueOf(furnitureId);
+        this.label = label;
+        this.description = description;
+        this.category = category;
+        this.price = price;
+        this.reference = reference;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class ColorView implements ColorProjection {
+        private final Long id;
+
+        private final String label;
+
+        private final String hexadecimalCode;
+    }
+}
@@ -0,0 +1,17 @@
+package com.sirioitalia.api.projection;
+
+public interface RatingSummaryProjection {
+    long getCount();
+
+    Double getAverage();
+
+    long getOneStar();
+
+    long getTwoStars();
+
+    long getThreeStars();
+
+    long getFourStars();
+
+    long getFiveStars();
+}
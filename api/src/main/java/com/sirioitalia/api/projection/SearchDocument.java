@@ -0,0 +1,62 @@
+package com.sirioitalia.api.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * One searchable catalog entry per item, built by a JPQL constructor expression.
+ * <p>
+ * It carries the versions of the rows it was read from, so that an index refreshed after several commits can tell
+ * an entry read before the last one from a current entry.
+ */
+@Getter
+@AllArgsConstructor
+public class SearchDocument {
+    private Long itemId;
+
+    private String reference;
+
+    private double price;
+
+    private Long furnitureId;
+
+    private String label;
+
+    private String description;
+
+    private Long categoryId;
+
+    private String category;
+
+    private Long colorId;
+
+    private String color;
+
+    private double width;
+
+    private double length;
+
+    private double height;
+
+    private long itemVersion;
+
+    private long furnitureVersion;
+
+    private long categoryVersion;
+
+    private long colorVersion;
+
+    /**
+     * Whether any row of this entry was read at an older version than in {@code other}. The furniture and color can
+     * only be compared while the item row is the same, and the category while the furniture row is.
+     */
+    public boolean isOlderThan(SearchDocument other) {
+        if (itemVersion != other.itemVersion) {
+            return itemVersion < other.itemVersion;
+        }
+
+        return furnitureVersion < other.furnitureVersion
+                || colorVersion < other.colorVersion
+                || furnitureVersion == other.furnitureVersion && categoryVersion < other.categoryVersion;
+    }
+}
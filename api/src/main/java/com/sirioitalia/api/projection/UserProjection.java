@@ -3,7 +3,6 @@ package com.sirioitalia.api.projection;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.sirioitalia.api.embeddable.Address;
 import com.sirioitalia.api.model.Role;
-import org.springframework.beans.factory.annotation.Value;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -27,8 +26,9 @@ public interface UserProjection {
         String getLastName();
 
         @JsonProperty("fullName")
-        @Value("#{target.getFirstName()} #{target.getLastName()}")
-        String getFullName();
+        default String getFullName() {
+            return getFirstName() + " " + getLastName();
+        }
 
         String getEmail();
 
@@ -42,23 +42,6 @@ public interface UserProjection {
 
         Role getRole();
 
-        Collection<OrderProjection.WithoutUserInfo> getOrders();
-
         Collection<RatingProjection.FromUser> getRatings();
     }
-
-    interface Authentication {
-        String getId();
-
-        String getEmail();
-
-        String getPasswordHash();
-
-        String getPasswordSalt();
-
-
-        @JsonProperty("roleLabel")
-        @Value("#{target.getRole().getLabel()}")
-        String getRoleLabel();
-    }
 }
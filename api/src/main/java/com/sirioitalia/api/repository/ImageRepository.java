@@ -3,12 +3,18 @@ package com.sirioitalia.api.repository;
 import com.sirioitalia.api.model.Image;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 @Repository
 public interface ImageRepository extends CrudRepository<Image, Long> {
     @Query("select img.id, img.name, img.item.id from Image img")
     List<Image> getImages();
+
+    @Query("select distinct img.contentHash from Image img where img.contentHash in :contentHashes")
+    Set<String> findReferencedContentHashes(@Param("contentHashes") Collection<String> contentHashes);
 }
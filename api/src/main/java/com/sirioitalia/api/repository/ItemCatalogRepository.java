@@ -0,0 +1,18 @@
+package com.sirioitalia.api.repository;
+
+import com.sirioitalia.api.model.Item;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Catalog reads with an explicit fetch plan: items are loaded with their color and furniture in one query,
+ * then images and ratings (with their publisher) are fetched for the whole batch in one query each.
+ */
+public interface ItemCatalogRepository {
+    List<Item> findCatalog();
+
+    List<Item> findCatalogPage(Long lastId, int limit);
+
+    Optional<Item> findCatalogItem(Long itemId);
+}
@@ -0,0 +1,85 @@
+package com.sirioitalia.api.repository;
+
+import com.sirioitalia.api.model.Item;
+import org.hibernate.jpa.QueryHints;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+public class ItemCatalogRepositoryImpl implements ItemCatalogRepository {
+    private static final String CATALOG_GRAPH = "Item.catalog";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Item> findCatalog() {
+        List<Item> items = entityManager.createQuery("select i from Item i order by i.id", Item.class)
+                .setHint(QueryHints.HINT_LOADGRAPH, entityManager.getEntityGraph(CATALOG_GRAPH))
+                .getResultList();
+
+        if (!items.isEmpty()) {
+            fetchCollections(null);
+        }
+
+        return items;
+    }
+
+    @Override
+    public List<Item> findCatalogPage(Long lastId, int limit) {
+        List<Item> items = entityManager.createQuery("select i from Item i where i.id > :lastId order by i.id", Item.class)
+                .setParameter("lastId", lastId)
+                .setMaxResults(limit)
+                .setHint(QueryHints.HINT_LOADGRAPH, entityManager.getEntityGraph(CATALOG_GRAPH))
+                .getResultList();
+
+        if (!items.isEmpty()) {
+            fetchCollections(items.stream().map(Item::getId).collect(Collectors.toList()));
+        }
+
+        return items;
+    }
+
+    @Override
+    public Optional<Item> findCatalogItem(Long itemId) {
+        List<Item> items = entityManager.createQuery("select i from Item i where i.id = :itemId", Item.class)
+                .setParameter("itemId", itemId)
+                .setHint(QueryHints.HINT_LOADGRAPH, entityManager.getEntityGraph(CATALOG_GRAPH))
+                .getResultList();
+
+        if (items.isEmpty()) {
+            return Optional.empty();
+        }
+
+        fetchCollections(List.of(itemId));
+
+        return Optional.of(items.get(0));
+    }
+
+    /**
+     * Images and ratings are two bags, so they cannot be join fetched together without a cartesian product.
+     * Each one is initialized with its own query; the items are already managed, so Hibernate only fills the
+     * collections of the instances returned to the caller.
+     */
+    private void fetchCollections(List<Long> itemIds) {
+        String restriction = itemIds == null ? "" : " where i.id in :itemIds";
+
+        TypedQuery<Item> images = entityManager.createQuery(
+                "select distinct i from Item i left join fetch i.images" + restriction, Item.class);
+        TypedQuery<Item> ratings = entityManager.createQuery(
+                "select distinct i from Item i left join fetch i.ratings r left join fetch r.user u left join fetch u.role"
+                        + restriction, Item.class);
+
+        for (TypedQuery<Item> query : List.of(images, ratings)) {
+            if (itemIds != null) {
+                query.setParameter("itemIds", itemIds);
+            }
+
+            query.setHint(QueryHints.HINT_PASS_DISTINCT_THROUGH, false).getResultList();
+        }
+    }
+}
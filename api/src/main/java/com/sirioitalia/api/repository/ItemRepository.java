@@ -1,19 +1,52 @@
 package com.sirioitalia.api.repository;
 
 import com.sirioitalia.api.model.Item;
+import com.sirioitalia.api.projection.CatalogExportRow;
 import com.sirioitalia.api.projection.ItemProjection;
+import com.sirioitalia.api.projection.ItemShortView;
+import com.sirioitalia.api.projection.SearchDocument;
+import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.util.Optional;
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
 
 @Repository
-public interface ItemRepository extends CrudRepository<Item, Long> {
-    @Query
-    Iterable<ItemProjection.Full> findBy();
+public interface ItemRepository extends JpaRepository<Item, Long>, ItemCatalogRepository {
+    String SEARCH_DOCUMENT_QUERY = "select new com.sirioitalia.api.projection.SearchDocument(i.id, i.reference, i.price, " +
+            "f.id, f.label, f.description, c.id, c.label, col.id, col.label, " +
+            "f.dimension.width, f.dimension.length, f.dimension.height, " +
+            "i.version, f.version, c.version, col.version) " +
+            "from Item i join i.furniture f join f.category c join i.color col";
 
-    @Query
-    Optional<ItemProjection.Full> findProjectionById(Long itemId);
+    @Query("select new com.sirioitalia.api.projection.CatalogExportRow(f.id, f.label, c.label, i.id, i.reference, " +
+            "col.label, col.hexadecimalCode, i.price, i.stock) " +
+            "from Item i join i.furniture f join f.category c join i.color col order by f.id, i.id")
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<CatalogExportRow> streamCatalogExport();
+
+    @Query("select new com.sirioitalia.api.projection.ItemShortView(i.id, col.id, col.label, col.hexadecimalCode, " +
+            "f.id, f.label, f.description, c.label, i.price, i.reference) " +
+            "from Item i join i.color col join i.furniture f join f.category c order by i.id")
+    List<ItemShortView> findShortViews();
+
+    @Query(SEARCH_DOCUMENT_QUERY)
+    List<SearchDocument> findSearchDocuments();
+
+    @Query(SEARCH_DOCUMENT_QUERY + " where i.id in :itemIds or f.id in :furnitureIds or c.id in :categoryIds " +
+            "or col.id in :colorIds")
+    List<SearchDocument> findSearchDocuments(@Param("itemIds") Collection<Long> itemIds,
+                                             @Param("furnitureIds") Collection<Long> furnitureIds,
+                                             @Param("categoryIds") Collection<Long> categoryIds,
+                                             @Param("colorIds") Collection<Long> colorIds);
+
+    List<ItemProjection.Reference> findByReferenceIn(Collection<String> references);
+
+    long countByReference(String reference);
 }
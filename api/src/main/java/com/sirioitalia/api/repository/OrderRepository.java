@@ -1,19 +1,30 @@
 package com.sirioitalia.api.repository;
 
 import com.sirioitalia.api.model.Order;
-import com.sirioitalia.api.projection.OrderProjection;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.List;
 import java.util.Optional;
 
 
 @Repository
 public interface OrderRepository extends CrudRepository<Order, Long> {
-    @Query
-    Iterable<OrderProjection.WithoutUserInfo> findBy();
+    /**
+     * Every order with its lines and their items in one statement, without the customers.
+     */
+    @EntityGraph("Order.listing")
+    @Query("select distinct o from Order o order by o.id")
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH, value = "false"))
+    List<Order> findListing();
 
-    @Query
-    Optional<OrderProjection> findProjectionById(Long orderId);
-}
\ No newline at end of file
+    @EntityGraph("Order.detail")
+    @Query("select distinct o from Order o where o.id = :orderId")
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH, value = "false"))
+    Optional<Order> findDetailById(@Param("orderId") Long orderId);
+}
@@ -0,0 +1,47 @@
+package com.sirioitalia.api.repository;
+
+import com.sirioitalia.api.model.OrderSummary;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OrderSummaryRepository extends CrudRepository<OrderSummary, Long> {
+    /**
+     * Orders of the user older than {@code beforeOrderId}, newest first. Order ids grow with time, so this is a range
+     * scan of the (userId, orderId) index.
+     */
+    List<OrderSummary> findByUserIdAndOrderIdLessThanOrderByOrderIdDesc(Long userId, Long beforeOrderId,
+                                                                         Pageable pageable);
+
+    /**
+     * Writes the summary of an order from its persisted lines, pricing them at the current item price. The pending
+     * lines are flushed first so the aggregate sees them.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "insert into \"orderSummaries\" (\"orderId\", \"userId\", \"orderReference\", \"orderDate\", " +
+            "\"lineCount\", \"itemCount\", total) " +
+            "select o.id, o.\"userId\", o.\"orderReference\", o.\"orderDate\", count(l.\"itemId\"), " +
+            "coalesce(sum(l.quantity), 0), coalesce(sum(l.quantity * i.price), 0) " +
+            "from orders o left join \"orderLines\" l on l.\"orderId\" = o.id left join items i on i.id = l.\"itemId\" " +
+            "where o.id = :orderId " +
+            "group by o.id, o.\"userId\", o.\"orderReference\", o.\"orderDate\" " +
+            "on conflict (\"orderId\") do nothing", nativeQuery = true)
+    void summarizeOrder(@Param("orderId") Long orderId);
+
+    /**
+     * Unlike {@code deleteById}, does not fail when the order has no summary.
+     */
+    @Modifying
+    @Query("delete from OrderSummary s where s.orderId = :orderId")
+    void deleteByOrderId(@Param("orderId") Long orderId);
+
+    @Modifying
+    @Query("delete from OrderSummary s where s.userId = :userId")
+    void deleteByUserId(@Param("userId") Long userId);
+}
@@ -0,0 +1,57 @@
+package com.sirioitalia.api.repository;
+
+import com.sirioitalia.api.model.RatingSummary;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RatingSummaryRepository extends CrudRepository<RatingSummary, Long> {
+    // The user's star for the summary row being updated; (itemId, userId) is the rating's key, so at most one
+    String USER_RATING = "select r.rating from \"itemRating\" r where r.\"itemId\" = s.\"itemId\" " +
+            "and r.\"userId\" = :userId";
+
+    /**
+     * Moves one rating of the item from {@code removedStar} to {@code addedStar} in a single atomic upsert; 0 stands for
+     * no rating, so (0, n) records a new rating and (n, 0) a deleted one.
+     */
+    @Modifying
+    @Query(value = "insert into \"itemRatingSummary\" (\"itemId\", \"ratingCount\", \"ratingSum\", " +
+            "\"oneStar\", \"twoStars\", \"threeStars\", \"fourStars\", \"fiveStars\") values (:itemId, " +
+            "case when :addedStar > 0 then 1 else 0 end - case when :removedStar > 0 then 1 else 0 end, " +
+            ":addedStar - :removedStar, " +
+            "case when :addedStar = 1 then 1 else 0 end - case when :removedStar = 1 then 1 else 0 end, " +
+            "case when :addedStar = 2 then 1 else 0 end - case when :removedStar = 2 then 1 else 0 end, " +
+            "case when :addedStar = 3 then 1 else 0 end - case when :removedStar = 3 then 1 else 0 end, " +
+            "case when :addedStar = 4 then 1 else 0 end - case when :removedStar = 4 then 1 else 0 end, " +
+            "case when :addedStar = 5 then 1 else 0 end - case when :removedStar = 5 then 1 else 0 end) " +
+            "on conflict (\"itemId\") do update set " +
+            "\"ratingCount\" = \"itemRatingSummary\".\"ratingCount\" + excluded.\"ratingCount\", " +
+            "\"ratingSum\" = \"itemRatingSummary\".\"ratingSum\" + excluded.\"ratingSum\", " +
+            "\"oneStar\" = \"itemRatingSummary\".\"oneStar\" + excluded.\"oneStar\", " +
+            "\"twoStars\" = \"itemRatingSummary\".\"twoStars\" + excluded.\"twoStars\", " +
+            "\"threeStars\" = \"itemRatingSummary\".\"threeStars\" + excluded.\"threeStars\", " +
+            "\"fourStars\" = \"itemRatingSummary\".\"fourStars\" + excluded.\"fourStars\", " +
+            "\"fiveStars\" = \"itemRatingSummary\".\"fiveStars\" + excluded.\"fiveStars\"", nativeQuery = true)
+    void applyRatingChange(@Param("itemId") Long itemId, @Param("removedStar") int removedStar,
+                           @Param("addedStar") int addedStar);
+
+    /**
+     * Takes every rating of the user out of the summaries of the items they rated, in a single statement. Must run
+     * before the ratings themselves are deleted.
+     */
+    @Modifying
+    @Query(value = "update \"itemRatingSummary\" s set " +
+            "\"ratingCount\" = s.\"ratingCount\" - 1, " +
+            "\"ratingSum\" = s.\"ratingSum\" - (" + USER_RATING + "), " +
+            "\"oneStar\" = s.\"oneStar\" - case when (" + USER_RATING + ") = 1 then 1 else 0 end, " +
+            "\"twoStars\" = s.\"twoStars\" - case when (" + USER_RATING + ") = 2 then 1 else 0 end, " +
+            "\"threeStars\" = s.\"threeStars\" - case when (" + USER_RATING + ") = 3 then 1 else 0 end, " +
+            "\"fourStars\" = s.\"fourStars\" - case when (" + USER_RATING + ") = 4 then 1 else 0 end, " +
+            "\"fiveStars\" = s.\"fiveStars\" - case when (" + USER_RATING + ") = 5 then 1 else 0 end " +
+            "where s.\"itemId\" in (select r.\"itemId\" from \"itemRating\" r where r.\"userId\" = :userId)",
+            nativeQuery = true)
+    void removeRatingsOfUser(@Param("userId") Long userId);
+}
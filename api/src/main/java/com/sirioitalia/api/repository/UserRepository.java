@@ -1,22 +1,39 @@
 package com.sirioitalia.api.repository;
 
 import com.sirioitalia.api.model.User;
-import com.sirioitalia.api.projection.UserProjection;
+import com.sirioitalia.api.security.AuthenticatedUser;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.List;
 import java.util.Optional;
 
 
 @Repository
 public interface UserRepository extends CrudRepository<User, Long> {
-    @Query
-    Iterable<UserProjection.Full> findBy();
+    /**
+     * Users with their role and ratings, the rated items joined in the same statement. Orders are not part of a
+     * profile and stay unloaded.
+     */
+    @EntityGraph("User.profile")
+    @Query("select distinct u from User u order by u.id")
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH, value = "false"))
+    List<User> findProfiles();
 
-    @Query
-    Optional<UserProjection.Full> findProjectionById(Long userId);
+    @EntityGraph("User.profile")
+    @Query("select distinct u from User u where u.id = :userId")
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH, value = "false"))
+    Optional<User> findProfileById(@Param("userId") Long userId);
 
-    @Query
-    Optional<UserProjection.Authentication> findByEmail(String email);
+    /**
+     * Everything a login needs in one row, looked up through the unique index on the email.
+     */
+    @Query("select new com.sirioitalia.api.security.AuthenticatedUser(u.id, u.email, u.passwordHash, u.passwordSalt, " +
+            "r.label) from User u join u.role r where u.email = :email")
+    Optional<AuthenticatedUser> findAuthenticatedUserByEmail(@Param("email") String email);
 }
@@ -0,0 +1,83 @@
+package com.sirioitalia.api.security;
+
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Principal of a login, read with a single select that joins the role label. It carries everything the token
+ * response needs, so a successful login does not look the user up a second time.
+ */
+public class AuthenticatedUser implements UserDetails, CredentialsContainer {
+    private final Long id;
+    private final String email;
+    private final String roleLabel;
+    private final List<GrantedAuthority> authorities;
+    private String passwordHash;
+    private String passwordSalt;
+
+    public AuthenticatedUser(Long id, String email, String passwordHash, String passwordSalt, String roleLabel) {
+        this.id = id;
+        this.email = email;
+        this.passwordHash = passwordHash;
+        this.passwordSalt = passwordSalt;
+        this.roleLabel = roleLabel;
+        this.authorities = List.of(new SimpleGrantedAuthority(roleLabel));
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getRoleLabel() {
+        return roleLabel;
+    }
+
+    /**
+     * The hash and salt in the {@code hash:salt} form expected by the password encoder.
+     */
+    @Override
+    public String getPassword() {
+        return passwordHash == null ? null : String.format("%s:%s", passwordHash, passwordSalt);
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void eraseCredentials() {
+        passwordHash = null;
+        passwordSalt = null;
+    }
+}
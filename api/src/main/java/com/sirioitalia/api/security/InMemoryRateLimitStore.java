@@ -0,0 +1,90 @@
+package com.sirioitalia.api.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets kept in a bounded Caffeine cache.
+ * <p>
+ * A bucket is a single {@link AtomicLong}: the instant at which it will be full again if nothing else is taken. Taking
+ * a token moves that instant one refill interval later, starting from now if it is already past, and is refused when
+ * it would land more than a full refill ahead. Buckets refill continuously from the elapsed time without any
+ * background task, every update is one compare-and-set, and a bucket left alone long enough to be full is evicted.
+ */
+public class InMemoryRateLimitStore implements RateLimitStore {
+    private final Cache<String, Bucket> buckets;
+    private final Ticker ticker;
+
+    public InMemoryRateLimitStore(long maximumSize) {
+        this(maximumSize, Ticker.systemTicker());
+    }
+
+    InMemoryRateLimitStore(long maximumSize, Ticker ticker) {
+        this.ticker = ticker;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new BucketExpiry())
+                .ticker(ticker)
+                .build();
+    }
+
+    @Override
+    public long tryConsume(String key, RateLimit limit) {
+        long now = ticker.read();
+        AtomicLong fullAt = buckets.get(key, k -> new Bucket(limit, now)).fullAt;
+
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + limit.getRefillIntervalNanos();
+            long overdraft = next - now - limit.getFullRefillNanos();
+
+            if (overdraft > 0) {
+                return overdraft;
+            }
+
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    @Override
+    public void reset(String key) {
+        // A missing bucket is created full
+        buckets.invalidate(key);
+    }
+
+    private static final class Bucket {
+        private final RateLimit limit;
+        private final AtomicLong fullAt;
+
+        private Bucket(RateLimit limit, long now) {
+            this.limit = limit;
+            this.fullAt = new AtomicLong(now);
+        }
+    }
+
+    /**
+     * A bucket taken from at any moment is full again at most one full refill later.
+     */
+    private static final class BucketExpiry implements Expiry<String, Bucket> {
+        @Override
+        public long expireAfterCreate(String key, Bucket bucket, long currentTime) {
+            return bucket.limit.getFullRefillNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Bucket bucket, long currentTime, long currentDuration) {
+            return bucket.limit.getFullRefillNanos();
+        }
+
+        @Override
+        public long expireAfterRead(String key, Bucket bucket, long currentTime, long currentDuration) {
+            return bucket.limit.getFullRefillNanos();
+        }
+    }
+}
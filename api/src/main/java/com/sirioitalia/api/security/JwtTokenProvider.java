@@ -0,0 +1,72 @@
+package com.sirioitalia.api.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class JwtTokenProvider {
+    public static final String ROLES_CLAIM = "roles";
+
+    private static final long ACCESS_TOKEN_VALIDITY_MILLIS = 3600 * 60;
+    private static final long REFRESH_TOKEN_VALIDITY_MILLIS = 20000 * 60;
+
+    // Algorithm is immutable and thread-safe, building it once avoids re-deriving the HMAC key for every login
+    private final Algorithm algorithm;
+    private final JWTVerifier verifier;
+    private final Timer accessTokenTimer;
+    private final Timer refreshTokenTimer;
+    private final Timer validTokenTimer;
+    private final Timer invalidTokenTimer;
+
+    public JwtTokenProvider(@Value("${sirio.security.jwt.secret:secret}") String secret, MeterRegistry meterRegistry) {
+        this.algorithm = Algorithm.HMAC256(secret.getBytes(StandardCharsets.UTF_8));
+        this.verifier = JWT.require(algorithm).build();
+        this.accessTokenTimer = Timer.builder("sirio.jwt.sign").tag("token", "access").register(meterRegistry);
+        this.refreshTokenTimer = Timer.builder("sirio.jwt.sign").tag("token", "refresh").register(meterRegistry);
+        this.validTokenTimer = Timer.builder("sirio.jwt.verify").tag("outcome", "valid").register(meterRegistry);
+        this.invalidTokenTimer = Timer.builder("sirio.jwt.verify").tag("outcome", "invalid").register(meterRegistry);
+    }
+
+    public String createAccessToken(String subject, String issuer, List<String> roles) {
+        return accessTokenTimer.record(() -> JWT.create()
+                .withSubject(subject)
+                .withExpiresAt(new Date(System.currentTimeMillis() + ACCESS_TOKEN_VALIDITY_MILLIS))
+                .withIssuer(issuer)
+                .withClaim(ROLES_CLAIM, roles)
+                .sign(algorithm));
+    }
+
+    public String createRefreshToken(String subject, String issuer) {
+        return refreshTokenTimer.record(() -> JWT.create()
+                .withSubject(subject)
+                .withExpiresAt(new Date(System.currentTimeMillis() + REFRESH_TOKEN_VALIDITY_MILLIS))
+                .withIssuer(issuer)
+                .sign(algorithm));
+    }
+
+    public DecodedJWT verify(String token) throws JWTVerificationException {
+        long start = System.nanoTime();
+
+        try {
+            DecodedJWT decodedJWT = verifier.verify(token);
+            validTokenTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+            return decodedJWT;
+        } catch (JWTVerificationException e) {
+            invalidTokenTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+}
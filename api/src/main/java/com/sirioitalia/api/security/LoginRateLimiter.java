@@ -0,0 +1,82 @@
+package com.sirioitalia.api.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Limits login attempts per client address and per email before any password is hashed. The address limit slows a
+ * single client spraying many accounts, the email limit a client guessing at one account.
+ * <p>
+ * The email bucket is kept per client address as well, and refilled by a successful login: otherwise anyone could
+ * lock a user out of their account by exhausting it. A guess spread over many addresses is only bounded by the limit
+ * of each address.
+ */
+@Component
+public class LoginRateLimiter {
+    private final RateLimitStore rateLimitStore;
+    private final RateLimit clientLimit;
+    private final RateLimit emailLimit;
+    private final Counter clientRejections;
+    private final Counter emailRejections;
+
+    @Autowired
+    public LoginRateLimiter(RateLimitStore rateLimitStore, MeterRegistry meterRegistry,
+                            @Value("${sirio.security.login-rate-limit.client.capacity:20}") int clientCapacity,
+                            @Value("${sirio.security.login-rate-limit.client.refill-interval-ms:3000}") long clientRefillMillis,
+                            @Value("${sirio.security.login-rate-limit.email.capacity:5}") int emailCapacity,
+                            @Value("${sirio.security.login-rate-limit.email.refill-interval-ms:60000}") long emailRefillMillis) {
+        this.rateLimitStore = rateLimitStore;
+        this.clientLimit = new RateLimit(clientCapacity, Duration.ofMillis(clientRefillMillis));
+        this.emailLimit = new RateLimit(emailCapacity, Duration.ofMillis(emailRefillMillis));
+        this.clientRejections = Counter.builder("sirio.login.rate-limited").tag("limit", "client")
+                .register(meterRegistry);
+        this.emailRejections = Counter.builder("sirio.login.rate-limited").tag("limit", "email")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Takes one attempt from the buckets of the client and, when given, of the email.
+     *
+     * @return zero when the attempt may proceed, otherwise how long the caller has to wait
+     */
+    public Duration tryAcquire(String clientAddress, String email) {
+        long waitNanos = rateLimitStore.tryConsume("login:client:" + clientAddress, clientLimit);
+
+        if (waitNanos > 0) {
+            clientRejections.increment();
+
+            return Duration.ofNanos(waitNanos);
+        }
+
+        if (email == null || email.isBlank()) {
+            return Duration.ZERO;
+        }
+
+        waitNanos = rateLimitStore.tryConsume(emailKey(clientAddress, email), emailLimit);
+
+        if (waitNanos > 0) {
+            emailRejections.increment();
+        }
+
+        return Duration.ofNanos(waitNanos);
+    }
+
+    /**
+     * Gives the email back its full allowance from the client address it logged in from.
+     */
+    public void loginSucceeded(String clientAddress, String email) {
+        if (email != null && !email.isBlank()) {
+            rateLimitStore.reset(emailKey(clientAddress, email));
+        }
+    }
+
+    private static String emailKey(String clientAddress, String email) {
+        return "login:email:" + clientAddress + ":" + email.trim().toLowerCase(Locale.ROOT);
+    }
+}
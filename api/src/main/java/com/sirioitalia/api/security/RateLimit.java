@@ -0,0 +1,35 @@
+package com.sirioitalia.api.security;
+
+import java.time.Duration;
+
+/**
+ * A token bucket: up to {@code capacity} requests in a burst, then one more every {@code refillInterval}.
+ */
+public final class RateLimit {
+    private final int capacity;
+    private final long refillIntervalNanos;
+
+    public RateLimit(int capacity, Duration refillInterval) {
+        if (capacity < 1 || refillInterval.isNegative() || refillInterval.isZero()) {
+            throw new IllegalArgumentException("A rate limit needs a positive capacity and refill interval");
+        }
+
+        this.capacity = capacity;
+        this.refillIntervalNanos = refillInterval.toNanos();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getRefillIntervalNanos() {
+        return refillIntervalNanos;
+    }
+
+    /**
+     * Time an untouched bucket takes to fill up again, after which it is indistinguishable from a new one.
+     */
+    public long getFullRefillNanos() {
+        return capacity * refillIntervalNanos;
+    }
+}
@@ -0,0 +1,19 @@
+package com.sirioitalia.api.security;
+
+/**
+ * Holds the token buckets of the rate limiters. The in-memory store limits each instance on its own; an
+ * implementation backed by a shared store makes the limits apply across instances.
+ */
+public interface RateLimitStore {
+    /**
+     * Takes one token from the bucket of the key, creating a full bucket for an unknown key.
+     *
+     * @return 0 when a token was taken, otherwise the nanoseconds until the bucket holds one again
+     */
+    long tryConsume(String key, RateLimit limit);
+
+    /**
+     * Refills the bucket of the key.
+     */
+    void reset(String key);
+}
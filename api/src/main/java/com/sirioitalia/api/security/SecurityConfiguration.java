@@ -1,10 +1,13 @@
 package com.sirioitalia.api.security;
 
 import com.sirioitalia.api.security.filter.CustomAuthenticationFilter;
+import com.sirioitalia.api.security.filter.CustomAuthorizationFilter;
 import com.sirioitalia.api.security.filter.CustomCorsFilter;
-import com.sirioitalia.api.service.UserService;
+import com.sirioitalia.api.security.filter.LoginRateLimitFilter;
 import com.sirioitalia.api.util.PBKDF2PasswordEncoder;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -13,9 +16,12 @@ import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.builders.WebSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -27,9 +33,16 @@ import java.util.Arrays;
 @EnableGlobalMethodSecurity(prePostEnabled = true, securedEnabled = true)
 @RequiredArgsConstructor
 public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
+    private static final String LOGIN_URL = "/auth/login";
+
     private final UserDetailsService userDetailsService;
     private final PBKDF2PasswordEncoder pbkdf2PasswordEncoder;
-    private final UserService userService;
+    private final JwtTokenProvider jwtTokenProvider;
+    private final LoginRateLimiter loginRateLimiter;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${sirio.security.jwt.verified-cache-size:10000}")
+    private long verifiedTokenCacheSize;
 
     @Override
     public void configure(AuthenticationManagerBuilder auth) throws Exception {
@@ -37,10 +50,20 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
     }
 
 
+    /**
+     * Load balancers probe health without a token; anonymous access is disabled, so it stays out of the filter chain.
+     */
+    @Override
+    public void configure(WebSecurity web) {
+        web.ignoring().antMatchers("/actuator/health", "/actuator/health/**");
+    }
+
+
     @Override
     protected void configure(HttpSecurity http) throws Exception {
-        CustomAuthenticationFilter customAuthenticationFilter = new CustomAuthenticationFilter(authenticationManagerBean(), userService);
-        customAuthenticationFilter.setFilterProcessesUrl("/auth/login");
+        CustomAuthenticationFilter customAuthenticationFilter = new CustomAuthenticationFilter(authenticationManagerBean(),
+                jwtTokenProvider, loginRateLimiter);
+        customAuthenticationFilter.setFilterProcessesUrl(LOGIN_URL);
         customAuthenticationFilter.setUsernameParameter("email");
         customAuthenticationFilter.setPasswordParameter("password");
 
@@ -48,9 +71,17 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
                 .cors().and()
                 .csrf().disable()
                 .anonymous().disable()
+                .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS).and()
                 .authorizeRequests()
-                .antMatchers(HttpMethod.OPTIONS, "/**").permitAll();
+                .antMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+                // Metrics and caches, including DELETE /actuator/caches, are for administrators only
+                .antMatchers("/actuator/**").hasRole("ADMIN");
         http.addFilter(customAuthenticationFilter);
+        http.addFilterBefore(new LoginRateLimitFilter(loginRateLimiter, LOGIN_URL, "email"),
+                UsernamePasswordAuthenticationFilter.class);
+        http.addFilterBefore(
+                new CustomAuthorizationFilter(jwtTokenProvider, LOGIN_URL, verifiedTokenCacheSize, meterRegistry),
+                UsernamePasswordAuthenticationFilter.class);
     }
 
     @Bean
@@ -1,17 +1,17 @@
 package com.sirioitalia.api.security.filter;
 
-import com.auth0.jwt.JWT;
-import com.auth0.jwt.algorithms.Algorithm;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.sirioitalia.api.projection.UserProjection;
-import com.sirioitalia.api.service.UserService;
-import org.springframework.beans.factory.annotation.Autowired;
+import com.sirioitalia.api.exception.HashingCapacityExceededException;
+import com.sirioitalia.api.security.AuthenticatedUser;
+import com.sirioitalia.api.security.JwtTokenProvider;
+import com.sirioitalia.api.security.LoginRateLimiter;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 import javax.servlet.FilterChain;
@@ -19,8 +19,6 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -28,13 +26,17 @@ import java.util.stream.Collectors;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 
 public class CustomAuthenticationFilter extends UsernamePasswordAuthenticationFilter {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
     private final AuthenticationManager authenticationManager;
-    @Autowired
-    private final UserService userService;
+    private final JwtTokenProvider jwtTokenProvider;
+    private final LoginRateLimiter loginRateLimiter;
 
-    public CustomAuthenticationFilter(AuthenticationManager authenticationManager, UserService userService) {
+    public CustomAuthenticationFilter(AuthenticationManager authenticationManager, JwtTokenProvider jwtTokenProvider,
+                                      LoginRateLimiter loginRateLimiter) {
         this.authenticationManager = authenticationManager;
-        this.userService = userService;
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.loginRateLimiter = loginRateLimiter;
     }
 
     @Override
@@ -50,37 +52,39 @@ public class CustomAuthenticationFilter extends UsernamePasswordAuthenticationFi
 
     @Override
     protected void unsuccessfulAuthentication(HttpServletRequest request, HttpServletResponse response, AuthenticationException failed) throws IOException, ServletException {
+        if (failed instanceof HashingCapacityExceededException) {
+            // The credentials were never checked: ask the client to come back instead of reporting bad credentials
+            SecurityContextHolder.clearContext();
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, failed.getMessage());
+
+            return;
+        }
+
         super.unsuccessfulAuthentication(request, response, failed);
     }
 
     @Override
     protected void successfulAuthentication(HttpServletRequest request, HttpServletResponse response, FilterChain chain, Authentication authentication) throws IOException, ServletException {
-        User user = (User) authentication.getPrincipal();
+        // The principal was read with its id and role by the login query, no further lookup is needed
+        AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
+        loginRateLimiter.loginSucceeded(request.getRemoteAddr(), request.getParameter("email"));
 
-        Algorithm algorithm = Algorithm.HMAC256("secret".getBytes(StandardCharsets.UTF_8));
+        String issuer = request.getRequestURL().toString();
 
-        String accessToken = JWT.create()
-                .withSubject(user.getUsername())
-                .withExpiresAt(new Date(System.currentTimeMillis() + 3600 * 60))
-                .withIssuer(request.getRequestURL().toString())
-                .withClaim("roles", user.getAuthorities().stream().map(GrantedAuthority::getAuthority).collect(Collectors.toList()))
-                .sign(algorithm);
+        String accessToken = jwtTokenProvider.createAccessToken(user.getUsername(), issuer,
+                user.getAuthorities().stream().map(GrantedAuthority::getAuthority).collect(Collectors.toList()));
 
-        String refreshToken = JWT.create()
-                .withSubject(user.getUsername())
-                .withExpiresAt(new Date(System.currentTimeMillis() + 20000 * 60))
-                .withIssuer(request.getRequestURL().toString())
-                .sign(algorithm);
+        String refreshToken = jwtTokenProvider.createRefreshToken(user.getUsername(), issuer);
 
         Map<String, String> tokens = new HashMap<>();
-        UserProjection.Authentication userDetailsProjection = userService.getUserByEmail(user.getUsername());
 
         tokens.put("jwt", accessToken);
         tokens.put("jwt_refresh", refreshToken);
-        tokens.put("userRight", userDetailsProjection.getRoleLabel());
-        tokens.put("sessionUserId", userDetailsProjection.getId());
+        tokens.put("userRight", user.getRoleLabel());
+        tokens.put("sessionUserId", String.valueOf(user.getId()));
 
         response.setContentType(APPLICATION_JSON_VALUE);
-        new ObjectMapper().writeValue(response.getOutputStream(), tokens);
+        OBJECT_MAPPER.writeValue(response.getOutputStream(), tokens);
     }
 }
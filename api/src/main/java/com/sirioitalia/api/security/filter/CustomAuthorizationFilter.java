@@ -0,0 +1,136 @@
+package com.sirioitalia.api.security.filter;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.sirioitalia.api.security.JwtTokenProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.springframework.http.HttpHeaders.AUTHORIZATION;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+/**
+ * Authenticates requests from the bearer token alone: the signature is checked and the authorities come from the
+ * roles claim, so no user lookup is needed. Verified tokens are cached until they expire.
+ */
+public class CustomAuthorizationFilter extends OncePerRequestFilter {
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final JwtTokenProvider jwtTokenProvider;
+    private final String loginUrl;
+    private final Cache<String, VerifiedToken> verifiedTokens;
+
+    public CustomAuthorizationFilter(JwtTokenProvider jwtTokenProvider, String loginUrl, long verifiedTokenCacheSize,
+                                     MeterRegistry meterRegistry) {
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.loginUrl = loginUrl;
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedTokenCacheSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt.verified");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getServletPath().equals(loginUrl);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String authorizationHeader = request.getHeader(AUTHORIZATION);
+
+        if (authorizationHeader == null || !authorizationHeader.startsWith(BEARER_PREFIX)) {
+            filterChain.doFilter(request, response);
+
+            return;
+        }
+
+        String token = authorizationHeader.substring(BEARER_PREFIX.length());
+        VerifiedToken verifiedToken = verifiedTokens.getIfPresent(token);
+
+        if (verifiedToken == null) {
+            try {
+                verifiedToken = verify(token);
+            } catch (JWTVerificationException ex) {
+                SecurityContextHolder.clearContext();
+                response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                response.setContentType(APPLICATION_JSON_VALUE);
+                OBJECT_MAPPER.writeValue(response.getOutputStream(), Map.of("error_message", ex.getMessage()));
+
+                return;
+            }
+
+            verifiedTokens.put(token, verifiedToken);
+        }
+
+        SecurityContextHolder.getContext().setAuthentication(verifiedToken.authentication);
+        filterChain.doFilter(request, response);
+    }
+
+    private VerifiedToken verify(String token) throws JWTVerificationException {
+        DecodedJWT decodedJWT = jwtTokenProvider.verify(token);
+        List<String> roles = decodedJWT.getClaim(JwtTokenProvider.ROLES_CLAIM).asList(String.class);
+
+        // Refresh tokens carry no roles and must not be usable as access tokens
+        if (roles == null || decodedJWT.getExpiresAt() == null) {
+            throw new JWTVerificationException("The token is not an access token");
+        }
+
+        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                decodedJWT.getSubject(), null,
+                roles.stream().map(SimpleGrantedAuthority::new).collect(Collectors.toList()));
+
+        return new VerifiedToken(authentication, decodedJWT.getExpiresAt().getTime());
+    }
+
+    private static final class VerifiedToken {
+        private final UsernamePasswordAuthenticationToken authentication;
+        private final long expiresAtMillis;
+
+        private VerifiedToken(UsernamePasswordAuthenticationToken authentication, long expiresAtMillis) {
+            this.authentication = authentication;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    private static final class TokenExpiry implements Expiry<String, VerifiedToken> {
+        @Override
+        public long expireAfterCreate(String token, VerifiedToken verifiedToken, long currentTime) {
+            long remainingMillis = verifiedToken.expiresAtMillis - System.currentTimeMillis();
+
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMillis, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, VerifiedToken verifiedToken, long currentTime, long currentDuration) {
+            return expireAfterCreate(token, verifiedToken, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String token, VerifiedToken verifiedToken, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
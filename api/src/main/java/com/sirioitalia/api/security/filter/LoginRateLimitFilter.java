@@ -0,0 +1,53 @@
+package com.sirioitalia.api.security.filter;
+
+import com.sirioitalia.api.security.LoginRateLimiter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Turns away login attempts over the rate limit with a 429 before the authentication filter gets to hash the
+ * password.
+ */
+public class LoginRateLimitFilter extends OncePerRequestFilter {
+    private final LoginRateLimiter loginRateLimiter;
+    private final String loginUrl;
+    private final String emailParameter;
+
+    public LoginRateLimitFilter(LoginRateLimiter loginRateLimiter, String loginUrl, String emailParameter) {
+        this.loginRateLimiter = loginRateLimiter;
+        this.loginUrl = loginUrl;
+        this.emailParameter = emailParameter;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.POST.matches(request.getMethod()) || !request.getServletPath().equals(loginUrl);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Duration wait = loginRateLimiter.tryAcquire(request.getRemoteAddr(), request.getParameter(emailParameter));
+
+        if (!wait.isZero()) {
+            // Rounded up so a client honouring the header does not come back just before its token is there
+            long retryAfterSeconds = (wait.toMillis() + 999) / 1000;
+
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Too many login attempts");
+
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+}
@@ -4,77 +4,116 @@ import com.sirioitalia.api.exception.ResourceException;
 import com.sirioitalia.api.model.Cart;
 import com.sirioitalia.api.projection.CartProjection;
 import com.sirioitalia.api.repository.CartRepository;
+import com.sirioitalia.api.repository.ItemRepository;
+import com.sirioitalia.api.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.projection.ProjectionFactory;
-import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 @Service
 public class CartService {
     private final CartRepository cartRepository;
-    ProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
+    private final CartStore cartStore;
+    private final ItemRepository itemRepository;
+    private final UserRepository userRepository;
+
+    @Autowired
+    public CartService(CartRepository cartRepository, CartStore cartStore, ItemRepository itemRepository,
+                       UserRepository userRepository) {
+        this.cartRepository = cartRepository;
+        this.cartStore = cartStore;
+        this.itemRepository = itemRepository;
+        this.userRepository = userRepository;
+    }
 
     public Iterable<CartProjection.Full> getCarts() {
+        cartStore.flush();
+
         return cartRepository.findBy();
     }
 
-    @Autowired
-    public CartService(CartRepository cartRepository) {
-        this.cartRepository = cartRepository;
+    public Iterable<CartProjection.Line> getItemsInCartByUserId(Long userId) {
+        return cartStore.getLines(userId);
     }
 
-    public Iterable<CartProjection> getItemsInCartByUserId(Long userId) {
-        return cartRepository.findCartsProjectionByUserId(userId);
+    public CartProjection.Line getItemInCartByUserId(Long userId, Long itemId) throws ResourceException {
+        return cartStore.getLine(userId, itemId)
+                .orElseThrow(() -> new ResourceException("404", "Item in cart not found", HttpStatus.NOT_FOUND));
     }
 
-    public CartProjection getItemInCartByUserId(Long userId, Long itemId) throws ResourceException {
-        Cart foundedItemInCartProjection = cartRepository.findCartByUserIdAndAndItemId(userId, itemId)
-                .orElseThrow(() -> new ResourceException("404", "Item in cart not found", HttpStatus.NOT_FOUND));
+    public CartProjection.Line addItemInCart(Cart cartDetails) throws ResourceException {
+        Long userId = userIdOf(cartDetails);
+        Long itemId = itemIdOf(cartDetails);
+        checkNewLine(userId, itemId);
 
-        return (CartProjection) foundedItemInCartProjection;
+        return cartStore.put(userId, itemId, 1);
     }
 
-    @Transactional
-    public CartProjection addItemInCart(Cart cartDetails) throws ResourceException {
-        try {
+    public CartProjection.Line updateItemInCart(Cart cartDetails) throws ResourceException {
+        if (cartDetails.getQuantity() == null || cartDetails.getQuantity() < 1) {
+            throw new ResourceException("400", "Quantity must be positive", HttpStatus.BAD_REQUEST);
+        }
 
-            cartDetails.setQuantity(1);
-            Cart createdItem = cartRepository.save(cartDetails);
+        Long userId = userIdOf(cartDetails);
+        Long itemId = itemIdOf(cartDetails);
+        checkNewLine(userId, itemId);
 
-            return projectionFactory.createProjection(CartProjection.class, createdItem);
-        } catch (Exception e) {
-            throw new ResourceException(e.getMessage(), e.getCause(), HttpStatus.CONFLICT);
-        }
+        return cartStore.put(userId, itemId, cartDetails.getQuantity());
     }
 
-    @Transactional
-    public CartProjection updateItemInCart(Cart cartDetails) throws ResourceException {
-        try {
-            Cart updatedItemInCart = cartRepository.save(cartDetails);
-
-            return projectionFactory.createProjection(CartProjection.class, updatedItemInCart);
-        } catch (Exception e) {
-            throw new ResourceException(e.getMessage(), e.getCause(), HttpStatus.CONFLICT);
+    public void deleteItemInCart(Long userId, Long itemId) throws ResourceException {
+        if (!cartStore.remove(userId, itemId)) {
+            throw new ResourceException("404", "Item in cart not found", HttpStatus.NOT_FOUND);
         }
     }
 
-    @Transactional
-    public void deleteItemInCart(Long userId, Long itemId) throws ResourceException {
-        Cart cartToDelete = cartRepository.findCartByUserIdAndAndItemId(userId, itemId)
-                .orElseThrow(() -> new ResourceException("404", "Item in cart not found", HttpStatus.NOT_FOUND));
+    public void deleteAllCartByUserId(Long userId) throws ResourceException {
+        cartStore.clear(userId);
+    }
 
+    /**
+     * Lines are only written to the table on the next flush, so unknown ids are rejected here rather than dropped then.
+     * Only what the cart does not vouch for yet is queried: a line already in it was checked when it was added, and a
+     * cart with lines belongs to an existing user. A user or item deleted in between is caught by the foreign keys and
+     * the flush drops the line.
+     */
+    private void checkNewLine(Long userId, Long itemId) throws ResourceException {
+        List<CartProjection.Line> lines = cartStore.getLines(userId);
+
+        if (lines.stream().anyMatch(line -> line.getItemId().equals(itemId))) {
+            return;
+        }
+
+        if (lines.isEmpty() && !userRepository.existsById(userId)) {
+            throw new ResourceException("404", "User not found", HttpStatus.NOT_FOUND);
+        }
 
-        cartRepository.delete(cartToDelete);
+        if (!itemRepository.existsById(itemId)) {
+            throw new ResourceException("404", "Item not found", HttpStatus.NOT_FOUND);
+        }
     }
 
-    @Transactional
-    public void deleteAllCartByUserId(Long userId) throws ResourceException {
-        Iterable<Cart> cartToDelete = cartRepository.findCartsByUserId(userId);
+    private static Long userIdOf(Cart cartDetails) throws ResourceException {
+        Long userId = cartDetails.getUser() != null ? cartDetails.getUser().getId()
+                : cartDetails.getCartPK() != null ? cartDetails.getCartPK().getUserId() : null;
+
+        if (userId == null) {
+            throw new ResourceException("400", "Cart user is required", HttpStatus.BAD_REQUEST);
+        }
 
-        cartRepository.deleteAll(cartToDelete);
+        return userId;
     }
 
+    private static Long itemIdOf(Cart cartDetails) throws ResourceException {
+        Long itemId = cartDetails.getItem() != null ? cartDetails.getItem().getId()
+                : cartDetails.getCartPK() != null ? cartDetails.getCartPK().getItemId() : null;
 
+        if (itemId == null) {
+            throw new ResourceException("400", "Cart item is required", HttpStatus.BAD_REQUEST);
+        }
+
+        return itemId;
+    }
 }
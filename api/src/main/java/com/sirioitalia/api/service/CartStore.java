@@ -0,0 +1,486 @@
+package com.sirioitalia.api.service;
+
+import com.sirioitalia.api.embeddable.CartPK;
+import com.sirioitalia.api.projection.CartProjection;
+import com.sirioitalia.api.util.SegmentJournal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory cart state in front of the {@code carts} table.
+ * <p>
+ * Carts are loaded on first access and then served from memory. Every mutation is journaled, applied under the lock
+ * of the user's stripe and marked dirty; a scheduled flush writes the dirty entries to PostgreSQL as batched upserts
+ * and deletes. Journal segments are only deleted once their mutations are committed, and leftover segments are
+ * replayed on startup, so a crash of the process between two flushes loses nothing. The journal is not fsynced: a
+ * crash of the machine can lose the mutations made since the last flush.
+ * <p>
+ * The journal directory must survive restarts and belong to this instance alone, the default is derived from the
+ * node id for that reason. Startup fails while another process holds it.
+ */
+@Component
+public class CartStore {
+    private static final Logger log = LoggerFactory.getLogger(CartStore.class);
+
+    private static final String SELECT_CART_QUERY = "select \"itemId\", quantity from carts where \"userId\" = ?";
+    private static final String UPSERT_CART_QUERY = "insert into carts (\"userId\", \"itemId\", quantity) values (?, ?, ?) "
+            + "on conflict (\"userId\", \"itemId\") do update set quantity = excluded.quantity";
+    private static final String DELETE_CART_QUERY = "delete from carts where \"userId\" = ? and \"itemId\" = ?";
+    private static final int REMOVED = 0;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ReentrantLock[] stripes;
+    private final Map<Long, UserCart> carts = new ConcurrentHashMap<>();
+    private final Set<Long> dirtyUsers = ConcurrentHashMap.newKeySet();
+    // Appends share the read side; rotating the journal takes the write side so no mutation straddles two segments
+    private final ReadWriteLock journalLock = new ReentrantReadWriteLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final SegmentJournal journal;
+    private final long idleEvictionNanos;
+    private long lastEvictionNanos = System.nanoTime();
+
+    @Autowired
+    public CartStore(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                     @Value("${sirio.cart.stripes:64}") int stripeCount,
+                     @Value("${sirio.cart.journal-dir:data/cart-journal/${sirio.reference.node-id:0}}")
+                     String journalDirectory,
+                     @Value("${sirio.cart.idle-eviction-seconds:600}") long idleEvictionSeconds) throws IOException {
+        this.jdbcTemplate = jdbcTemplate;
+        // Flushes may be triggered from inside a business transaction, whose rollback must not undo them
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.journal = new SegmentJournal(Path.of(journalDirectory));
+        this.idleEvictionNanos = TimeUnit.SECONDS.toNanos(idleEvictionSeconds);
+    }
+
+
+    @PostConstruct
+    void replayJournal() throws IOException {
+        Map<CartPK, Integer> mutations = new LinkedHashMap<>();
+
+        long lastReplayed = journal.replay(line -> {
+            String[] fields = line.split(",");
+
+            if (fields.length == 3) {
+                mutations.put(cartPK(Long.valueOf(fields[0]), Long.valueOf(fields[1])), Integer.valueOf(fields[2]));
+            }
+        });
+
+        if (mutations.isEmpty()) {
+            journal.deleteUpTo(lastReplayed);
+
+            return;
+        }
+
+        write(mutations);
+        journal.deleteUpTo(lastReplayed);
+        log.info("Replayed {} cart mutation(s) from the journal", mutations.size());
+    }
+
+
+    public List<CartProjection.Line> getLines(Long userId) {
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            return loadedCart(userId).lines(userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    public Optional<CartProjection.Line> getLine(Long userId, Long itemId) {
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            Integer quantity = loadedCart(userId).quantities.get(itemId);
+
+            return quantity == null ? Optional.empty() : Optional.of(new CartLine(userId, itemId, quantity));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    public CartProjection.Line put(Long userId, Long itemId, int quantity) {
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            UserCart cart = loadedCart(userId);
+            record(userId, cart, itemId, quantity);
+
+            return new CartLine(userId, itemId, quantity);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * @return false when the item was not in the cart
+     */
+    public boolean remove(Long userId, Long itemId) {
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            UserCart cart = loadedCart(userId);
+
+            if (!cart.quantities.containsKey(itemId)) {
+                return false;
+            }
+
+            record(userId, cart, itemId, REMOVED);
+
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    public void clear(Long userId) {
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            UserCart cart = loadedCart(userId);
+
+            for (Long itemId : new ArrayList<>(cart.quantities.keySet())) {
+                record(userId, cart, itemId, REMOVED);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Writes every pending mutation. Called on a schedule and before anything reads the table directly.
+     */
+    @Scheduled(fixedDelayString = "${sirio.cart.flush-interval-ms:500}")
+    public void flush() {
+        flush(dirtyUsers);
+    }
+
+
+    /**
+     * Writes the pending mutations of one user, e.g. at checkout.
+     */
+    public void flush(Long userId) {
+        if (dirtyUsers.contains(userId)) {
+            flush(Set.of(userId));
+        }
+    }
+
+
+    @PreDestroy
+    void shutdown() throws IOException {
+        flush();
+        journal.close();
+    }
+
+
+    private void flush(Collection<Long> userIds) {
+        flushLock.lock();
+        try {
+            // Nothing to write, and rotating would just churn through empty segments
+            if (userIds.isEmpty()) {
+                evictIdleCarts();
+
+                return;
+            }
+
+            long closedSegment;
+
+            journalLock.writeLock().lock();
+            try {
+                closedSegment = journal.rotate();
+            } finally {
+                journalLock.writeLock().unlock();
+            }
+
+            Map<CartPK, Integer> mutations = new LinkedHashMap<>();
+            Map<Long, Map<Long, Integer>> snapshots = new HashMap<>();
+
+            for (Long userId : new ArrayList<>(userIds)) {
+                ReentrantLock lock = lockFor(userId);
+                lock.lock();
+                try {
+                    UserCart cart = carts.get(userId);
+                    dirtyUsers.remove(userId);
+
+                    if (cart == null || cart.dirty.isEmpty()) {
+                        continue;
+                    }
+
+                    snapshots.put(userId, new HashMap<>(cart.dirty));
+                    cart.dirty.forEach((itemId, quantity) -> mutations.put(cartPK(userId, itemId), quantity));
+                    cart.dirty.clear();
+                } finally {
+                    lock.unlock();
+                }
+            }
+
+            try {
+                write(mutations);
+            } catch (DataAccessException ex) {
+                log.warn("Cart flush failed, {} mutation(s) will be retried", mutations.size(), ex);
+                restore(snapshots);
+
+                return;
+            }
+
+            // A segment can only go once every user has been flushed, otherwise it may hold unwritten mutations
+            if (userIds == dirtyUsers) {
+                journal.deleteUpTo(closedSegment);
+            }
+
+            evictIdleCarts();
+        } catch (IOException ex) {
+            log.warn("Cart journal rotation failed", ex);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+
+    private void write(Map<CartPK, Integer> mutations) {
+        if (mutations.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> writeBatch(mutations));
+        } catch (DataIntegrityViolationException ex) {
+            // Usually an item deleted since it was added; write the entries one by one and drop the offending ones
+            mutations.forEach((cartPK, quantity) -> {
+                try {
+                    writeBatch(Map.of(cartPK, quantity));
+                } catch (DataIntegrityViolationException entryEx) {
+                    log.warn("Dropping cart line of user {} for item {}, it no longer matches an existing user and item",
+                            cartPK.getUserId(), cartPK.getItemId(), entryEx);
+                    forget(cartPK);
+                }
+            });
+        }
+    }
+
+
+    private void writeBatch(Map<CartPK, Integer> mutations) {
+        List<Object[]> upserts = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+
+        mutations.forEach((cartPK, quantity) -> {
+            if (quantity == REMOVED) {
+                deletes.add(new Object[]{cartPK.getUserId(), cartPK.getItemId()});
+            } else {
+                upserts.add(new Object[]{cartPK.getUserId(), cartPK.getItemId(), quantity});
+            }
+        });
+
+        if (!upserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_CART_QUERY, upserts);
+        }
+
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_CART_QUERY, deletes);
+        }
+    }
+
+
+    private void restore(Map<Long, Map<Long, Integer>> snapshots) {
+        snapshots.forEach((userId, snapshot) -> {
+            ReentrantLock lock = lockFor(userId);
+            lock.lock();
+            try {
+                UserCart cart = carts.computeIfAbsent(userId, id -> new UserCart());
+                // Newer mutations made during the failed write take precedence
+                snapshot.forEach(cart.dirty::putIfAbsent);
+                dirtyUsers.add(userId);
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+
+    /**
+     * Removes a line that could not be written from memory as well, so the cart shows what the table holds.
+     */
+    private void forget(CartPK cartPK) {
+        ReentrantLock lock = lockFor(cartPK.getUserId());
+        lock.lock();
+        try {
+            UserCart cart = carts.get(cartPK.getUserId());
+
+            // A mutation made since the snapshot is written by the next flush
+            if (cart != null && !cart.dirty.containsKey(cartPK.getItemId())) {
+                cart.quantities.remove(cartPK.getItemId());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    private void evictIdleCarts() {
+        long now = System.nanoTime();
+
+        if (now - lastEvictionNanos < idleEvictionNanos) {
+            return;
+        }
+
+        lastEvictionNanos = now;
+
+        for (Long userId : new ArrayList<>(carts.keySet())) {
+            ReentrantLock lock = lockFor(userId);
+            lock.lock();
+            try {
+                UserCart cart = carts.get(userId);
+
+                if (cart != null && cart.dirty.isEmpty() && now - cart.lastAccessNanos > idleEvictionNanos) {
+                    carts.remove(userId);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+
+    private void record(Long userId, UserCart cart, Long itemId, int quantity) {
+        // Held until the user is marked dirty, so a rotated segment never holds a mutation the next flush cannot see
+        journalLock.readLock().lock();
+        try {
+            journal.append(userId + "," + itemId + "," + quantity);
+
+            if (quantity == REMOVED) {
+                cart.quantities.remove(itemId);
+            } else {
+                cart.quantities.put(itemId, quantity);
+            }
+
+            cart.dirty.put(itemId, quantity);
+            dirtyUsers.add(userId);
+        } finally {
+            journalLock.readLock().unlock();
+        }
+    }
+
+
+    private UserCart loadedCart(Long userId) {
+        UserCart cart = carts.get(userId);
+
+        if (cart == null || !cart.loaded) {
+            UserCart loadedCart = cart == null ? new UserCart() : cart;
+            Map<Long, Integer> persisted = new LinkedHashMap<>();
+
+            jdbcTemplate.query(SELECT_CART_QUERY,
+                    rs -> {
+                        persisted.put(rs.getLong(1), rs.getInt(2));
+                    },
+                    userId);
+
+            // Mutations restored after a failed flush are newer than the table
+            loadedCart.dirty.forEach((itemId, quantity) -> {
+                if (quantity == REMOVED) {
+                    persisted.remove(itemId);
+                } else {
+                    persisted.put(itemId, quantity);
+                }
+            });
+
+            loadedCart.quantities.clear();
+            loadedCart.quantities.putAll(persisted);
+            loadedCart.loaded = true;
+            carts.put(userId, loadedCart);
+            cart = loadedCart;
+        }
+
+        cart.lastAccessNanos = System.nanoTime();
+
+        return cart;
+    }
+
+
+    private ReentrantLock lockFor(Long userId) {
+        return stripes[Math.floorMod(userId.hashCode(), stripes.length)];
+    }
+
+
+    private static CartPK cartPK(Long userId, Long itemId) {
+        CartPK cartPK = new CartPK();
+        cartPK.setUserId(userId);
+        cartPK.setItemId(itemId);
+
+        return cartPK;
+    }
+
+
+    private static final class UserCart {
+        private final Map<Long, Integer> quantities = new LinkedHashMap<>();
+        private final Map<Long, Integer> dirty = new HashMap<>();
+        private boolean loaded;
+        private long lastAccessNanos;
+
+        private List<CartProjection.Line> lines(Long userId) {
+            return quantities.entrySet().stream()
+                    .map(entry -> (CartProjection.Line) new CartLine(userId, entry.getKey(), entry.getValue()))
+                    .collect(Collectors.toList());
+        }
+    }
+
+
+    private static final class CartLine implements CartProjection.Line {
+        private final Long userId;
+        private final Long itemId;
+        private final Integer quantity;
+
+        private CartLine(Long userId, Long itemId, Integer quantity) {
+            this.userId = userId;
+            this.itemId = itemId;
+            this.quantity = quantity;
+        }
+
+        @Override
+        public Long getUserId() {
+            return userId;
+        }
+
+        @Override
+        public Long getItemId() {
+            return itemId;
+        }
+
+        @Override
+        public Integer getQuantity() {
+            return quantity;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.sirioitalia.api.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.sirioitalia.api.exception.ResourceException;
+import com.sirioitalia.api.projection.CatalogExportRow;
+import com.sirioitalia.api.repository.ItemRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Service
+public class CatalogExportService {
+    private static final String CSV_HEADER = "furnitureId,furnitureLabel,category,itemId,reference,color,hexadecimalCode,price,stock";
+
+    private final ItemRepository itemRepository;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public CatalogExportService(ItemRepository itemRepository, ObjectMapper objectMapper) {
+        this.itemRepository = itemRepository;
+        this.objectMapper = objectMapper;
+    }
+
+
+    /**
+     * Writes the catalog row by row while the database cursor is being read. The transaction keeps the cursor open
+     * and the rows are never collected, so memory use does not depend on the catalog size.
+     */
+    @Transactional(readOnly = true)
+    public void exportCatalog(Format format, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+
+        try (Stream<CatalogExportRow> rows = itemRepository.streamCatalogExport()) {
+            if (format == Format.CSV) {
+                writeCsv(rows.iterator(), writer);
+            } else {
+                writeNdjson(rows.iterator(), writer);
+            }
+        }
+
+        writer.flush();
+    }
+
+
+    private void writeNdjson(Iterator<CatalogExportRow> rows, Writer writer) throws IOException {
+        try (SequenceWriter sequenceWriter = objectMapper.writer()
+                .withRootValueSeparator("\n")
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .writeValues(writer)) {
+            while (rows.hasNext()) {
+                sequenceWriter.write(rows.next());
+            }
+        }
+
+        writer.write('\n');
+    }
+
+
+    private void writeCsv(Iterator<CatalogExportRow> rows, Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+
+        while (rows.hasNext()) {
+            CatalogExportRow row = rows.next();
+
+            writer.write(String.valueOf(row.getFurnitureId()));
+            writer.write(',');
+            writeCsvField(row.getFurnitureLabel(), writer);
+            writer.write(',');
+            writeCsvField(row.getCategory(), writer);
+            writer.write(',');
+            writer.write(String.valueOf(row.getItemId()));
+            writer.write(',');
+            writeCsvField(row.getReference(), writer);
+            writer.write(',');
+            writeCsvField(row.getColor(), writer);
+            writer.write(',');
+            writeCsvField(row.getHexadecimalCode(), writer);
+            writer.write(',');
+            writer.write(String.valueOf(row.getPrice()));
+            writer.write(',');
+            writer.write(String.valueOf(row.getStock()));
+            writer.write('\n');
+        }
+    }
+
+
+    private static void writeCsvField(String value, Writer writer) throws IOException {
+        if (value == null) {
+            return;
+        }
+
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+
+            return;
+        }
+
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format fromValue(String value) throws ResourceException {
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(value)) {
+                    return format;
+                }
+            }
+
+            throw new ResourceException("400", "Unsupported export format: " + value, HttpStatus.BAD_REQUEST);
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.sirioitalia.api.service;
+
+import com.sirioitalia.api.projection.CatalogSearchResult;
+import com.sirioitalia.api.projection.SearchDocument;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory inverted index over the catalog, one document per item.
+ * <p>
+ * Terms are lower-cased and stripped of accents, so "armoire chene" finds "Armoire en chêne", and every query token
+ * matches as a prefix through the sorted postings map. Writers are serialized; readers never lock and re-check each
+ * candidate against its own terms, so a concurrent update can delay a document but never return a wrong one.
+ * <p>
+ * Refreshes of concurrent commits can arrive out of order, so an upsert never replaces a document read at newer
+ * versions, and a removed item is never indexed again; item ids are not reused.
+ */
+@Component
+public class CatalogSearchIndex {
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final double[] PRICE_BOUNDS = {100, 250, 500, 1000};
+
+    private final Map<Long, IndexedDocument> documents = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, Set<Long>> postings = new ConcurrentSkipListMap<>();
+    private final Set<Long> removedItemIds = ConcurrentHashMap.newKeySet();
+    private final Object writeLock = new Object();
+
+    public void replaceAll(Collection<SearchDocument> searchDocuments) {
+        synchronized (writeLock) {
+            documents.clear();
+            postings.clear();
+            searchDocuments.stream()
+                    .filter(searchDocument -> !removedItemIds.contains(searchDocument.getItemId()))
+                    .forEach(this::index);
+        }
+    }
+
+    /**
+     * @return false when the document was ignored because the index already holds a newer one or the item was removed
+     */
+    public boolean upsert(SearchDocument searchDocument) {
+        synchronized (writeLock) {
+            IndexedDocument current = documents.get(searchDocument.getItemId());
+
+            if (removedItemIds.contains(searchDocument.getItemId())
+                    || current != null && searchDocument.isOlderThan(current.source)) {
+                return false;
+            }
+
+            unindex(searchDocument.getItemId());
+            index(searchDocument);
+
+            return true;
+        }
+    }
+
+    public void remove(Long itemId) {
+        synchronized (writeLock) {
+            removedItemIds.add(itemId);
+            unindex(itemId);
+        }
+    }
+
+    public Set<Long> getItemIdsOfFurnitures(Collection<Long> furnitureIds) {
+        return documents.values().stream()
+                .filter(document -> furnitureIds.contains(document.source.getFurnitureId()))
+                .map(document -> document.source.getItemId())
+                .collect(Collectors.toSet());
+    }
+
+    public CatalogSearchResult search(String query, Long categoryId, Long colorId, Double minPrice, Double maxPrice,
+                                      int offset, int limit) {
+        List<String> tokens = tokenize(query);
+        List<IndexedDocument> matches = new ArrayList<>();
+
+        for (IndexedDocument document : candidates(tokens)) {
+            SearchDocument source = document.source;
+
+            if (document.matches(tokens)
+                    && (categoryId == null || categoryId.equals(source.getCategoryId()))
+                    && (colorId == null || colorId.equals(source.getColorId()))
+                    && (minPrice == null || source.getPrice() >= minPrice)
+                    && (maxPrice == null || source.getPrice() <= maxPrice)) {
+                matches.add(document);
+            }
+        }
+
+        Map<IndexedDocument, Integer> scores = new HashMap<>();
+        matches.forEach(document -> scores.put(document, document.score(tokens)));
+        matches.sort(Comparator.<IndexedDocument>comparingInt(scores::get).reversed()
+                .thenComparing(document -> document.source.getItemId()));
+
+        List<SearchDocument> hits = matches.stream()
+                .skip(offset)
+                .limit(limit)
+                .map(document -> document.source)
+                .collect(Collectors.toList());
+
+        return new CatalogSearchResult(matches.size(), hits, facets(matches));
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+
+        return Arrays.stream(TOKEN_SEPARATOR.split(folded))
+                .filter(token -> !token.isEmpty())
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    private Collection<IndexedDocument> candidates(List<String> tokens) {
+        if (tokens.isEmpty()) {
+            return documents.values();
+        }
+
+        Set<Long> itemIds = null;
+
+        for (String token : tokens) {
+            Set<Long> tokenItemIds = new HashSet<>();
+            postings.subMap(token, true, token + Character.MAX_VALUE, true).values().forEach(tokenItemIds::addAll);
+
+            if (itemIds == null) {
+                itemIds = tokenItemIds;
+            } else {
+                itemIds.retainAll(tokenItemIds);
+            }
+
+            if (itemIds.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        return itemIds.stream()
+                .map(documents::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private void index(SearchDocument searchDocument) {
+        IndexedDocument document = new IndexedDocument(searchDocument);
+        documents.put(searchDocument.getItemId(), document);
+
+        for (String term : document.terms) {
+            postings.computeIfAbsent(term, key -> ConcurrentHashMap.newKeySet()).add(searchDocument.getItemId());
+        }
+    }
+
+    private void unindex(Long itemId) {
+        IndexedDocument removed = documents.remove(itemId);
+
+        if (removed == null) {
+            return;
+        }
+
+        for (String term : removed.terms) {
+            postings.computeIfPresent(term, (key, itemIds) -> {
+                itemIds.remove(itemId);
+
+                return itemIds.isEmpty() ? null : itemIds;
+            });
+        }
+    }
+
+    private static CatalogSearchResult.Facets facets(List<IndexedDocument> matches) {
+        Map<Long, CatalogSearchResult.FacetValue> categories = new LinkedHashMap<>();
+        Map<Long, CatalogSearchResult.FacetValue> colors = new LinkedHashMap<>();
+        long[] priceCounts = new long[PRICE_BOUNDS.length + 1];
+        DoubleSummaryStatistics widths = new DoubleSummaryStatistics();
+        DoubleSummaryStatistics lengths = new DoubleSummaryStatistics();
+        DoubleSummaryStatistics heights = new DoubleSummaryStatistics();
+
+        for (IndexedDocument document : matches) {
+            SearchDocument source = document.source;
+
+            increment(categories, source.getCategoryId(), source.getCategory());
+            increment(colors, source.getColorId(), source.getColor());
+            priceCounts[priceBucket(source.getPrice())]++;
+            widths.accept(source.getWidth());
+            lengths.accept(source.getLength());
+            heights.accept(source.getHeight());
+        }
+
+        List<CatalogSearchResult.PriceRange> priceRanges = new ArrayList<>();
+        for (int i = 0; i < priceCounts.length; i++) {
+            double from = i == 0 ? 0 : PRICE_BOUNDS[i - 1];
+            Double to = i < PRICE_BOUNDS.length ? PRICE_BOUNDS[i] : null;
+            priceRanges.add(new CatalogSearchResult.PriceRange(from, to, priceCounts[i]));
+        }
+
+        CatalogSearchResult.DimensionBounds dimensions = matches.isEmpty() ? null
+                : new CatalogSearchResult.DimensionBounds(widths.getMin(), widths.getMax(), lengths.getMin(),
+                lengths.getMax(), heights.getMin(), heights.getMax());
+
+        return new CatalogSearchResult.Facets(sortedByCount(categories), sortedByCount(colors), priceRanges, dimensions);
+    }
+
+    private static void increment(Map<Long, CatalogSearchResult.FacetValue> facet, Long id, String label) {
+        CatalogSearchResult.FacetValue current = facet.get(id);
+        facet.put(id, new CatalogSearchResult.FacetValue(id, label, current == null ? 1 : current.getCount() + 1));
+    }
+
+    private static List<CatalogSearchResult.FacetValue> sortedByCount(Map<Long, CatalogSearchResult.FacetValue> facet) {
+        return facet.values().stream()
+                .sorted(Comparator.comparingLong(CatalogSearchResult.FacetValue::getCount).reversed())
+                .collect(Collectors.toList());
+    }
+
+    private static int priceBucket(double price) {
+        for (int i = 0; i < PRICE_BOUNDS.length; i++) {
+            if (price < PRICE_BOUNDS[i]) {
+                return i;
+            }
+        }
+
+        return PRICE_BOUNDS.length;
+    }
+
+    private static final class IndexedDocument {
+        private final SearchDocument source;
+        private final NavigableSet<String> labelTerms;
+        private final NavigableSet<String> terms;
+
+        private IndexedDocument(SearchDocument source) {
+            this.source = source;
+            this.labelTerms = new TreeSet<>(tokenize(source.getLabel()));
+            this.terms = new TreeSet<>(labelTerms);
+            terms.addAll(tokenize(source.getDescription()));
+            terms.addAll(tokenize(source.getCategory()));
+            terms.addAll(tokenize(source.getColor()));
+        }
+
+        private boolean matches(List<String> tokens) {
+            return tokens.stream().allMatch(token -> hasPrefix(terms, token));
+        }
+
+        // Label hits rank above description, category and color hits, and whole words above prefixes
+        private int score(List<String> tokens) {
+            int score = 0;
+
+            for (String token : tokens) {
+                if (labelTerms.contains(token)) {
+                    score += 4;
+                } else if (hasPrefix(labelTerms, token)) {
+                    score += 3;
+                } else if (terms.contains(token)) {
+                    score += 2;
+                } else {
+                    score += 1;
+                }
+            }
+
+            return score;
+        }
+
+        private static boolean hasPrefix(NavigableSet<String> terms, String token) {
+            String ceiling = terms.ceiling(token);
+
+            return ceiling != null && ceiling.startsWith(token);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.sirioitalia.api.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Version counters behind the ETag and Last-Modified validators of the catalog endpoints.
+ * <p>
+ * Counters are rows of {@code catalogVersions}, bumped in the same transaction as the write they cover, so every
+ * instance validates against what is committed, whichever instance wrote it. Checking a validator is a single
+ * primary key read and never touches the catalog tables. Writes that bypass JPA, such as plain SQL updates, must call
+ * {@link #markChanged} themselves.
+ * <p>
+ * A transaction bumps each resource once, and holds the lock on its row until it ends, so concurrent catalog writes
+ * commit one after the other.
+ */
+@Component
+public class CatalogVersionTracker {
+    public enum Resource {
+        // Items and furnitures, including their images, ratings, colors and categories
+        CATALOG,
+        COLORS,
+        CATEGORIES
+    }
+
+    private static final String SELECT_QUERY =
+            "select version, \"lastModified\" from \"catalogVersions\" where resource = ?";
+
+    private static final String SEED_QUERY = "insert into \"catalogVersions\" (resource, version, \"lastModified\") "
+            + "select ?, 0, ? where not exists (select 1 from \"catalogVersions\" where resource = ?)";
+
+    // The clocks of the instances may disagree, Last-Modified never goes backwards
+    private static final String BUMP_QUERY = "update \"catalogVersions\" set version = version + 1, "
+            + "\"lastModified\" = case when \"lastModified\" < ? then ? else \"lastModified\" end where resource = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public CatalogVersionTracker(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedVersions() {
+        long now = now();
+
+        for (Resource resource : Resource.values()) {
+            try {
+                jdbcTemplate.update(SEED_QUERY, resource.name(), now, resource.name());
+            } catch (DuplicateKeyException e) {
+                // Seeded by another instance starting at the same time
+            }
+        }
+    }
+
+    /**
+     * Writes the validators of the resource on the response and tells whether the client copy is still current, in
+     * which case the response has already been turned into a 304 and the handler should return {@code null}.
+     * <p>
+     * Call it in the read-only transaction that loads the response: the version is then read from the same replica
+     * as the data, before it, and never announces changes the replica has not replayed yet.
+     */
+    public boolean checkNotModified(WebRequest webRequest, Resource resource) {
+        return jdbcTemplate.query(SELECT_QUERY, resultSet -> {
+            if (!resultSet.next()) {
+                // Not seeded yet, only the ETag is sent
+                return webRequest.checkNotModified("\"0\"", -1);
+            }
+
+            return webRequest.checkNotModified("\"" + resultSet.getLong(1) + "\"", resultSet.getLong(2));
+        }, resource.name());
+    }
+
+    /**
+     * Bumps the given resources as part of the current transaction, or right away outside of a transaction.
+     */
+    public void markChanged(Resource... resources) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bump(EnumSet.of(resources[0], resources));
+
+            return;
+        }
+
+        BumpedResources bumped = TransactionSynchronizationManager.getSynchronizations().stream()
+                .filter(BumpedResources.class::isInstance)
+                .map(BumpedResources.class::cast)
+                .findFirst()
+                .orElseGet(() -> {
+                    BumpedResources synchronization = new BumpedResources();
+                    TransactionSynchronizationManager.registerSynchronization(synchronization);
+
+                    return synchronization;
+                });
+
+        Set<Resource> pending = EnumSet.of(resources[0], resources);
+        pending.removeAll(bumped.resources);
+
+        if (!pending.isEmpty()) {
+            bump(pending);
+            bumped.resources.addAll(pending);
+        }
+    }
+
+    private void bump(Set<Resource> resources) {
+        long now = now();
+
+        // Every change includes CATALOG, which comes first, so transactions lock the rows in the same order
+        for (Resource resource : resources) {
+            jdbcTemplate.update(BUMP_QUERY, now, now, resource.name());
+        }
+    }
+
+    // HTTP dates have a one second resolution
+    private static long now() {
+        return Instant.now().truncatedTo(ChronoUnit.SECONDS).toEpochMilli();
+    }
+
+    /**
+     * Remembers which rows the transaction already bumped; dropped with the transaction.
+     */
+    private static final class BumpedResources implements TransactionSynchronization {
+        private final Set<Resource> resources = EnumSet.noneOf(Resource.class);
+    }
+}
@@ -1,53 +1,73 @@
 package com.sirioitalia.api.service;
 
+import com.sirioitalia.api.event.CatalogChangedEvent;
 import com.sirioitalia.api.exception.ResourceException;
 import com.sirioitalia.api.model.Category;
 import com.sirioitalia.api.repository.CategoryRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Set;
 
 @Service
 public class CategoryService {
+    public static final String CACHE_NAME = "categories";
+
     private final CategoryRepository categoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public CategoryService(CategoryRepository categoryRepository) {
+    public CategoryService(CategoryRepository categoryRepository, ApplicationEventPublisher eventPublisher) {
         this.categoryRepository = categoryRepository;
+        this.eventPublisher = eventPublisher;
     }
 
 
+    @Cacheable(cacheNames = CACHE_NAME, key = "#categoryId")
+    @Transactional
     public Category getCategoryById(Long categoryId) throws ResourceException {
         return categoryRepository.findById(categoryId)
                 .orElseThrow(() -> new ResourceException("404", "Category not found", HttpStatus.NOT_FOUND));
     }
 
 
+    @Cacheable(cacheNames = CACHE_NAME, key = "'all'")
+    @Transactional
     public List<Category> getCategories() {
         return (List<Category>) categoryRepository.findAll();
     }
 
 
     @Transactional
+    @CacheEvict(cacheNames = CACHE_NAME, allEntries = true)
     public Category updateCategory(Long categoryId, Category categoryDetails) throws ResourceException {
         Category categoryToUpdate = categoryRepository.findById(categoryId)
                 .orElseThrow(() -> new ResourceException("404", "Category not found", HttpStatus.NOT_FOUND));
 
         categoryToUpdate.setLabel(categoryDetails.getLabel());
-        return categoryRepository.save(categoryToUpdate);
+        Category updatedCategory = categoryRepository.save(categoryToUpdate);
+        // Search entries carry the category label
+        eventPublisher.publishEvent(CatalogChangedEvent.ofCategories(Set.of(categoryId)));
+
+        return updatedCategory;
     }
 
 
     @Transactional
+    @CacheEvict(cacheNames = CACHE_NAME, allEntries = true)
     public Category createCategory(Category category) throws ResourceException {
         return categoryRepository.save(category);
     }
 
 
     @Transactional
+    @CacheEvict(cacheNames = CACHE_NAME, allEntries = true)
     public void deleteCategory(Long categoryId) throws ResourceException {
         Category categoryToDelete = categoryRepository.findById(categoryId)
                 .orElseThrow(() -> new ResourceException("404", "Category not found", HttpStatus.NOT_FOUND));
@@ -1,35 +1,49 @@
 package com.sirioitalia.api.service;
 
+import com.sirioitalia.api.event.CatalogChangedEvent;
 import com.sirioitalia.api.exception.ResourceException;
 import com.sirioitalia.api.model.Color;
 import com.sirioitalia.api.repository.ColorRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Set;
 
 @Service
 public class ColorService {
+    public static final String CACHE_NAME = "colors";
+
     private final ColorRepository colorRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public ColorService(ColorRepository colorRepository) {
+    public ColorService(ColorRepository colorRepository, ApplicationEventPublisher eventPublisher) {
         this.colorRepository = colorRepository;
+        this.eventPublisher = eventPublisher;
     }
 
 
+    @Cacheable(cacheNames = CACHE_NAME, key = "'all'")
+    @Transactional
     public List<Color> getColors() throws ResourceException {
         return (List<Color>) colorRepository.findAll();
     }
 
+    @Cacheable(cacheNames = CACHE_NAME, key = "#colorId")
+    @Transactional
     public Color getColorById(Long colorId) throws ResourceException {
         return colorRepository.findById(colorId)
                 .orElseThrow(() -> new ResourceException("404", "Color not found", HttpStatus.NOT_FOUND));
     }
 
     @Transactional
+    @CacheEvict(cacheNames = CACHE_NAME, allEntries = true)
     public Color createColor(Color colorDetails) throws ResourceException {
         try {
             return colorRepository.save(colorDetails);
@@ -39,6 +53,7 @@ public class ColorService {
     }
 
     @Transactional
+    @CacheEvict(cacheNames = CACHE_NAME, allEntries = true)
     public Color updateColor(Long colorId, Color colorDetails) throws ResourceException {
         Color colorToUpdate = colorRepository.findById(colorId)
                 .orElseThrow(() -> new ResourceException("404", "Color not found", HttpStatus.NOT_FOUND));
@@ -51,10 +66,15 @@ public class ColorService {
                 ? colorToUpdate.getHexadecimalCode()
                 : colorDetails.getHexadecimalCode());
 
-        return colorRepository.save(colorToUpdate);
+        Color updatedColor = colorRepository.save(colorToUpdate);
+        // Search entries carry the color label
+        eventPublisher.publishEvent(CatalogChangedEvent.ofColors(Set.of(colorId)));
+
+        return updatedColor;
     }
 
     @Transactional
+    @CacheEvict(cacheNames = CACHE_NAME, allEntries = true)
     public void deleteColor(Long colorId) throws ResourceException {
         Color colorToDelete = colorRepository.findById(colorId)
                 .orElseThrow(() -> new ResourceException("404", "Color not found", HttpStatus.NOT_FOUND));
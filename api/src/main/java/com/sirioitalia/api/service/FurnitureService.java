@@ -1,5 +1,6 @@
 package com.sirioitalia.api.service;
 
+import com.sirioitalia.api.event.CatalogChangedEvent;
 import com.sirioitalia.api.exception.ResourceException;
 import com.sirioitalia.api.model.Furniture;
 import com.sirioitalia.api.model.Item;
@@ -7,31 +8,50 @@ import com.sirioitalia.api.projection.CartProjection;
 import com.sirioitalia.api.projection.FurnitureProjection;
 import com.sirioitalia.api.repository.FurnitureRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.projection.ProjectionFactory;
 import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 @Service
 public class FurnitureService {
+    // Matches hibernate.jdbc.batch_size so that each chunk is flushed as full batches
+    private static final int BULK_CHUNK_SIZE = 50;
+
     private final FurnitureRepository furnitureRepository;
     private final ItemService itemService;
+    private final ApplicationEventPublisher eventPublisher;
     ProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
     @Autowired
-    public FurnitureService(FurnitureRepository furnitureRepository, ItemService itemService) {
+    public FurnitureService(FurnitureRepository furnitureRepository, ItemService itemService,
+                            ApplicationEventPublisher eventPublisher) {
         super();
         this.furnitureRepository = furnitureRepository;
         this.itemService = itemService;
+        this.eventPublisher = eventPublisher;
     }
 
 
+    @Transactional(readOnly = true)
     public Iterable<FurnitureProjection> getFurnitures() {
         return furnitureRepository.findBy();
     }
 
 
+    @Transactional(readOnly = true)
     public FurnitureProjection getFurnitureById(Long furnitureId) throws ResourceException {
         return furnitureRepository.findProjectionById(furnitureId)
                 .orElseThrow(() -> new ResourceException("404", "Furniture not found", HttpStatus.NOT_FOUND));
@@ -41,20 +61,60 @@ public class FurnitureService {
     @Transactional
     public FurnitureProjection createFurniture(Furniture furnitureDetails) throws ResourceException {
         try {
-            Furniture addedFurniture = furnitureRepository.save(furnitureDetails);
+            Furniture addedFurniture = persistFurniture(furnitureDetails);
+            entityManager.flush();
+            eventPublisher.publishEvent(CatalogChangedEvent.ofFurnitures(Set.of(addedFurniture.getId())));
+
+            return projectionFactory.createProjection(FurnitureProjection.class, addedFurniture);
+        } catch (Exception e) {
+            throw new ResourceException(e.getMessage(), e.getCause(), HttpStatus.CONFLICT);
+        }
+    }
+
+
+    @Transactional
+    public Iterable<FurnitureProjection> createFurnitures(List<Furniture> furnituresDetails) throws ResourceException {
+        try {
+            List<FurnitureProjection> addedFurnitures = new ArrayList<>(furnituresDetails.size());
+            Set<Long> addedFurnitureIds = new HashSet<>();
+
+            for (int i = 0; i < furnituresDetails.size(); i++) {
+                Furniture addedFurniture = persistFurniture(furnituresDetails.get(i));
+                addedFurnitures.add(projectionFactory.createProjection(FurnitureProjection.class, addedFurniture));
+                addedFurnitureIds.add(addedFurniture.getId());
+
+                // Keep the persistence context small on large imports
+                if ((i + 1) % BULK_CHUNK_SIZE == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+
+            entityManager.flush();
+            eventPublisher.publishEvent(CatalogChangedEvent.ofFurnitures(addedFurnitureIds));
+
+            return addedFurnitures;
+        } catch (Exception e) {
+            throw new ResourceException(e.getMessage(), e.getCause(), HttpStatus.CONFLICT);
+        }
+    }
+
+
+    private Furniture persistFurniture(Furniture furnitureDetails) {
+        Furniture addedFurniture = furnitureRepository.save(furnitureDetails);
+
+        if (furnitureDetails.getItems() != null) {
+            String reference = String.format("%s%s", addedFurniture.getId().toString(), addedFurniture.getCategory().getId().toString());
 
             for (Item itemToAdd :
                     furnitureDetails.getItems()) {
                 itemToAdd.setFurniture(addedFurniture);
-                String reference = String.format("%s%s", addedFurniture.getId().toString(), addedFurniture.getCategory().getId().toString());
                 itemToAdd.setReference(reference);
-                itemService.createItem(itemToAdd);
+                itemService.persistItem(itemToAdd);
             }
-
-            return projectionFactory.createProjection(FurnitureProjection.class, addedFurniture);
-        } catch (Exception e) {
-            throw new ResourceException(e.getMessage(), e.getCause(), HttpStatus.CONFLICT);
         }
+
+        return addedFurniture;
     }
 
 
@@ -83,7 +143,10 @@ public class FurnitureService {
                 ? furnitureToUpdate.getDimension()
                 : furnitureDetails.getDimension());
 
-        return furnitureRepository.save(furnitureToUpdate);
+        Furniture updatedFurniture = furnitureRepository.save(furnitureToUpdate);
+        eventPublisher.publishEvent(CatalogChangedEvent.ofFurnitures(Set.of(furnitureId)));
+
+        return updatedFurniture;
     }
 
 
@@ -93,6 +156,7 @@ public class FurnitureService {
                 .orElseThrow(() -> new ResourceException("404", "Item Not Found", HttpStatus.NOT_FOUND));
 
         furnitureRepository.delete(furnitureToDelete);
+        eventPublisher.publishEvent(CatalogChangedEvent.ofFurnitures(Set.of(furnitureId)));
     }
 
 
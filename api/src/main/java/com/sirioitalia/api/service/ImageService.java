@@ -2,30 +2,83 @@ package com.sirioitalia.api.service;
 
 import com.sirioitalia.api.exception.ResourceException;
 import com.sirioitalia.api.model.Image;
+import com.sirioitalia.api.model.ImageVariantStatus;
+import com.sirioitalia.api.model.Item;
+import com.sirioitalia.api.projection.ImageContent;
+import com.sirioitalia.api.projection.ImageUploadResult;
+import com.sirioitalia.api.projection.ItemProjection;
 import com.sirioitalia.api.repository.ImageRepository;
+import com.sirioitalia.api.repository.ItemRepository;
+import com.sirioitalia.api.util.ImageFormat;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUploadBase;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.MultipartStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class ImageService {
+    private static final Logger log = LoggerFactory.getLogger(ImageService.class);
+
+    private static final int BULK_CHUNK_SIZE = 50;
+    private static final int RECLAIM_BATCH_SIZE = 500;
+
     private final ImageRepository imageRepository;
+    private final ItemRepository itemRepository;
+    private final ImageStore imageStore;
+    private final ImageVariantPipeline imageVariantPipeline;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration unreferencedContentGrace;
+    private final int maxUploadParts;
 
     @Autowired
-    public ImageService(ImageRepository imageRepository) {
+    public ImageService(ImageRepository imageRepository, ItemRepository itemRepository, ImageStore imageStore,
+                        ImageVariantPipeline imageVariantPipeline, PlatformTransactionManager transactionManager,
+                        @Value("${sirio.images.unreferenced-grace-seconds:86400}") long unreferencedGraceSeconds,
+                        @Value("${sirio.images.bulk.max-parts:1000}") int maxUploadParts) {
         this.imageRepository = imageRepository;
+        this.itemRepository = itemRepository;
+        this.imageStore = imageStore;
+        this.imageVariantPipeline = imageVariantPipeline;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.unreferencedContentGrace = Duration.ofSeconds(unreferencedGraceSeconds);
+        this.maxUploadParts = maxUploadParts;
     }
 
 
+    @Transactional(readOnly = true)
     public Iterable<Image> getImages() throws ResourceException {
 
         return imageRepository.getImages();
     }
 
 
+    @Transactional(readOnly = true)
     public Image getImageById(Long imageId) throws ResourceException {
 
         return imageRepository.findById(imageId)
@@ -36,8 +89,10 @@ public class ImageService {
     @Transactional
     public Image createImage(Image imageDetails) throws ResourceException {
         try {
+            Image createdImage = imageRepository.save(markVariantsPending(imageDetails));
+            imageVariantPipeline.enqueue(List.of(createdImage));
 
-            return imageRepository.save(imageDetails);
+            return createdImage;
         } catch (Exception e) {
             throw new ResourceException(e.getMessage(), e.getCause(), HttpStatus.CONFLICT);
         }
@@ -47,18 +102,325 @@ public class ImageService {
     @Transactional
     public Iterable<Image> createImages(List<Image> imagesDetails) throws ResourceException {
         try {
-            return imageRepository.saveAll(imagesDetails);
+            imagesDetails.forEach(this::markVariantsPending);
+            Iterable<Image> createdImages = imageRepository.saveAll(imagesDetails);
+            // New images are persisted in place, so they now carry their ids
+            imageVariantPipeline.enqueue(imagesDetails);
+
+            return createdImages;
         } catch (Exception e) {
             throw new ResourceException(e.getMessage(), e.getCause(), HttpStatus.CONFLICT);
         }
     }
 
 
+    /**
+     * Creates one image per file part of a multipart upload, the field name of each part being the reference of the
+     * item it belongs to. Parts are streamed to the image store as they are read, and the rows are inserted through
+     * {@link #createImages} every {@value #BULK_CHUNK_SIZE} images, each chunk in its own transaction. Parts that are
+     * not JPEG, PNG, GIF or WebP images, or whose reference matches no item or several items, are skipped and reported;
+     * references are resolved before the content is read, so rejected parts store nothing. Reading stops after
+     * {@code sirio.images.bulk.max-parts} parts. Failing to store the content is a server error.
+     */
+    public ImageUploadResult uploadImages(FileItemIterator parts) throws ResourceException {
+        List<ImageUploadResult.RejectedPart> rejectedParts = new ArrayList<>();
+        List<UploadedPart> uploadedParts = new ArrayList<>(BULK_CHUNK_SIZE);
+        // Several images usually share a reference, each one is only looked up once
+        Map<String, Long> matchingItemCounts = new HashMap<>();
+        int partCount = 0;
+        int created = 0;
+
+        try {
+            while (parts.hasNext()) {
+                FileItemStream part = parts.next();
+
+                // The streaming API leaves the file count limit to its caller
+                if (++partCount > maxUploadParts) {
+                    rejectedParts.add(new ImageUploadResult.RejectedPart(part.getFieldName(), part.getName(),
+                            "Bulk upload is limited to " + maxUploadParts + " parts, the rest was not read"));
+                    break;
+                }
+
+                if (part.isFormField()) {
+                    continue;
+                }
+
+                Optional<ImageFormat> format = ImageFormat.fromContentType(part.getContentType());
+
+                if (format.isEmpty()) {
+                    rejectedParts.add(new ImageUploadResult.RejectedPart(part.getFieldName(), part.getName(),
+                            "Content type must be one of " + ImageFormat.CONTENT_TYPES));
+                    continue;
+                }
+
+                long matchingItemCount = matchingItemCounts.computeIfAbsent(part.getFieldName(),
+                        itemRepository::countByReference);
+
+                if (matchingItemCount != 1) {
+                    rejectedParts.add(new ImageUploadResult.RejectedPart(part.getFieldName(), part.getName(),
+                            referenceRejection(matchingItemCount)));
+                    continue;
+                }
+
+                InputStream partContent = part.openStream();
+
+                try {
+                    ImageStore.StoredContent storedContent = imageStore.store(partContent, format.get());
+                    uploadedParts.add(new UploadedPart(part.getFieldName(), part.getName(),
+                            format.get().getContentType(), storedContent));
+                } catch (ResourceException e) {
+                    rejectedParts.add(new ImageUploadResult.RejectedPart(part.getFieldName(), part.getName(),
+                            e.getStatus().getReasonPhrase()));
+                } catch (FileUploadBase.FileUploadIOException | MultipartStream.MalformedStreamException e) {
+                    // The request itself could not be read, reported as such below
+                    throw e;
+                } catch (IOException e) {
+                    // Anything else failed on our side of the copy: the staging directory or the blob store
+                    throw new ResourceException("Image content could not be stored", e,
+                            HttpStatus.INTERNAL_SERVER_ERROR);
+                }
+
+                if (uploadedParts.size() == BULK_CHUNK_SIZE) {
+                    created += createUploadedImages(uploadedParts, rejectedParts);
+                    uploadedParts.clear();
+                }
+            }
+        } catch (FileUploadException | IOException e) {
+            throw new ResourceException("Multipart upload could not be read", e, HttpStatus.BAD_REQUEST);
+        }
+
+        created += createUploadedImages(uploadedParts, rejectedParts);
+
+        return new ImageUploadResult(created, rejectedParts);
+    }
+
+
+    private int createUploadedImages(List<UploadedPart> uploadedParts,
+                                     List<ImageUploadResult.RejectedPart> rejectedParts) throws ResourceException {
+        if (uploadedParts.isEmpty()) {
+            return 0;
+        }
+
+        return transactionTemplate.execute(status -> {
+            // References are not unique in the table, so one may name several items
+            Map<String, List<Long>> itemIds = itemRepository.findByReferenceIn(uploadedParts.stream()
+                            .map(UploadedPart::getReference)
+                            .collect(Collectors.toSet()))
+                    .stream()
+                    .collect(Collectors.groupingBy(ItemProjection.Reference::getReference,
+                            Collectors.mapping(ItemProjection.Reference::getId, Collectors.toList())));
+            List<Image> images = new ArrayList<>(uploadedParts.size());
+            List<String> references = new ArrayList<>(uploadedParts.size());
+
+            for (UploadedPart uploadedPart : uploadedParts) {
+                List<Long> matchingItemIds = itemIds.getOrDefault(uploadedPart.getReference(), List.of());
+
+                // Items may have changed since their reference was resolved; the content is then reclaimed later
+                if (matchingItemIds.size() != 1) {
+                    rejectedParts.add(new ImageUploadResult.RejectedPart(uploadedPart.getReference(),
+                            uploadedPart.getFileName(), referenceRejection(matchingItemIds.size())));
+                    continue;
+                }
+
+                Long itemId = matchingItemIds.get(0);
+
+                images.add(Image.builder()
+                        .item(itemRepository.getById(itemId))
+                        .contentHash(uploadedPart.getStoredContent().getContentHash())
+                        .contentType(uploadedPart.getContentType())
+                        .contentLength(uploadedPart.getStoredContent().getContentLength())
+                        .build());
+                references.add(uploadedPart.getReference());
+            }
+
+            if (!images.isEmpty()) {
+                createImages(images);
+            }
+
+            // Same naming as persistImages, written by the flush that ends the chunk
+            for (int i = 0; i < images.size(); i++) {
+                images.get(i).setName(String.format("%s_%s", references.get(i), images.get(i).getId().toString()));
+            }
+
+            return images.size();
+        });
+    }
+
+
+    private static String referenceRejection(long matchingItemCount) {
+        return matchingItemCount == 0
+                ? "Unknown item reference"
+                : "Item reference matches " + matchingItemCount + " items";
+    }
+
+
+    /**
+     * Persists the images of an item that was just persisted, so that both end up in the same insert batches.
+     */
+    void persistImages(Item item, Collection<Image> images) {
+        for (Image imageToAdd : images) {
+            imageToAdd.setItem(item);
+            imageRepository.save(imageToAdd);
+            imageToAdd.setName(String.format("%s_%s", item.getReference(), imageToAdd.getId().toString()));
+        }
+    }
+
+
+    /**
+     * Stores the uploaded bytes and points the image at them. Not transactional on purpose: the upload is streamed to
+     * disk before a connection is taken for the metadata update.
+     */
+    public Image storeImageContent(Long imageId, String contentType, InputStream content) throws ResourceException {
+        Image image = getImageById(imageId);
+
+        ImageFormat format = ImageFormat.fromContentType(contentType)
+                .orElseThrow(() -> new ResourceException("415",
+                        "Image content type must be one of " + ImageFormat.CONTENT_TYPES,
+                        HttpStatus.UNSUPPORTED_MEDIA_TYPE));
+
+        ImageStore.StoredContent storedContent;
+
+        try {
+            storedContent = imageStore.store(content, format);
+        } catch (IOException e) {
+            throw new ResourceException("Image content could not be stored", e, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+
+        image.setContentHash(storedContent.getContentHash());
+        image.setContentType(format.getContentType());
+        image.setContentLength(storedContent.getContentLength());
+
+        // The image and its variant job change together, so a committed upload always has its variants queued
+        return transactionTemplate.execute(status -> {
+            Image updatedImage = imageRepository.save(markVariantsPending(image));
+            imageVariantPipeline.enqueue(List.of(updatedImage));
+
+            return updatedImage;
+        });
+    }
+
+
+    /**
+     * Resolves the original bytes of an image, or one of its resized variants once they are generated.
+     */
+    public ImageContent getImageContent(Long imageId, ImageVariantPipeline.Variant variant) throws ResourceException {
+        Image image = getImageById(imageId);
+
+        if (image.getContentHash() == null) {
+            throw new ResourceException("404", "Image has no content", HttpStatus.NOT_FOUND);
+        }
+
+        if (variant != null) {
+            Optional<Path> variantPath = image.getVariantStatus() == ImageVariantStatus.READY
+                    ? imageVariantPipeline.findVariant(image.getContentHash(), variant)
+                    : Optional.empty();
+
+            if (variantPath.isEmpty()) {
+                throw new ResourceException("404", "Image variant is not available", HttpStatus.NOT_FOUND);
+            }
+
+            return toImageContent(image.getContentHash() + "-" + variant.getValue(),
+                    ImageVariantPipeline.Variant.getContentType(variantPath.get()), variantPath.get());
+        }
+
+        return toImageContent(image.getContentHash(), image.getContentType(), imageStore.resolve(image.getContentHash()));
+    }
+
+
+    /**
+     * Only the image row is deleted: its blob may be shared with other images, since blobs are keyed by content. The
+     * blob goes with {@link #reclaimUnreferencedContent} once no image references it anymore.
+     */
     @Transactional
     public void deleteImage(Long imageId) throws ResourceException {
         Image imageToDelete = imageRepository.findById(imageId)
                 .orElseThrow(() -> new ResourceException("404", "Image not found", HttpStatus.NOT_FOUND));
 
         imageRepository.delete(imageToDelete);
+        imageVariantPipeline.cancel(imageId);
+    }
+
+
+    /**
+     * Deletes the blobs, and their variants, that no image references. Only blobs left untouched for the grace period
+     * are considered: content is stored before the row that references it is inserted, and an upload of content that
+     * is already there refreshes its blob.
+     */
+    @Scheduled(fixedDelayString = "${sirio.images.reclaim-interval-ms:3600000}")
+    public void reclaimUnreferencedContent() {
+        Instant modifiedBefore = Instant.now().minus(unreferencedContentGrace);
+        int reclaimed = 0;
+
+        try {
+            List<String> contentHashes = new ArrayList<>(imageStore.findContentHashesModifiedBefore(modifiedBefore));
+
+            for (int from = 0; from < contentHashes.size(); from += RECLAIM_BATCH_SIZE) {
+                List<String> batch = contentHashes.subList(from,
+                        Math.min(from + RECLAIM_BATCH_SIZE, contentHashes.size()));
+                Set<String> referenced = imageRepository.findReferencedContentHashes(batch);
+
+                for (String contentHash : batch) {
+                    if (!referenced.contains(contentHash) && imageStore.delete(contentHash, modifiedBefore)) {
+                        reclaimed++;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not reclaim unreferenced image content", e);
+        }
+
+        if (reclaimed > 0) {
+            log.info("Reclaimed the content of {} unreferenced image(s)", reclaimed);
+        }
+    }
+
+
+    private Image markVariantsPending(Image image) {
+        if (image.getContentHash() != null) {
+            image.setVariantStatus(ImageVariantStatus.PENDING);
+        }
+
+        return image;
+    }
+
+
+    private static ImageContent toImageContent(String contentKey, String contentType, Path path) throws ResourceException {
+        try {
+            return new ImageContent(contentKey, contentType, Files.size(path), path);
+        } catch (IOException e) {
+            throw new ResourceException("404", "Image content is missing from the store", HttpStatus.NOT_FOUND);
+        }
+    }
+
+
+    private static final class UploadedPart {
+        private final String reference;
+        private final String fileName;
+        private final String contentType;
+        private final ImageStore.StoredContent storedContent;
+
+        private UploadedPart(String reference, String fileName, String contentType,
+                             ImageStore.StoredContent storedContent) {
+            this.reference = reference;
+            this.fileName = fileName;
+            this.contentType = contentType;
+            this.storedContent = storedContent;
+        }
+
+        private String getReference() {
+            return reference;
+        }
+
+        private String getFileName() {
+            return fileName;
+        }
+
+        private String getContentType() {
+            return contentType;
+        }
+
+        private ImageStore.StoredContent getStoredContent() {
+            return storedContent;
+        }
     }
 }
@@ -0,0 +1,265 @@
+package com.sirioitalia.api.service;
+
+import com.sirioitalia.api.exception.ResourceException;
+import com.sirioitalia.api.util.ImageFormat;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed file store for image bytes.
+ * <p>
+ * Every blob is named after the SHA-256 of its content and fanned out by the first two hex digits, so identical
+ * uploads share a single file. Uploads are written to a staging directory on the same file system and renamed into
+ * place, which means a blob path either does not exist or holds the complete content.
+ * <p>
+ * Nothing here knows which blobs are still referenced: the owner of the references lists old blobs with
+ * {@link #findContentHashesModifiedBefore} and deletes the ones it no longer needs. Storing content that is already
+ * there refreshes the modification time of its blob, so a blob about to be referenced again never looks old.
+ */
+@Component
+public class ImageStore {
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    // A blob, or a file derived from it
+    private static final Pattern CONTENT_FILE_NAME = Pattern.compile("([0-9a-f]{64})(-.+)?");
+
+    private final Path root;
+    private final Path incoming;
+    private final long maxSizeBytes;
+
+    @Autowired
+    public ImageStore(@Value("${sirio.images.store-dir}") String storeDir,
+                      @Value("${sirio.images.max-size-bytes}") long maxSizeBytes) throws IOException {
+        this.root = Paths.get(storeDir).toAbsolutePath();
+        this.incoming = root.resolve("incoming");
+        this.maxSizeBytes = maxSizeBytes;
+
+        Files.createDirectories(incoming);
+    }
+
+    /**
+     * Streams the content to disk while hashing it. The stream is consumed and closed; nothing is buffered in memory
+     * beyond a single copy buffer. Content that does not start with the signature of the given format never makes it
+     * into the store.
+     */
+    public StoredContent store(InputStream content, ImageFormat format) throws IOException {
+        MessageDigest digest = newDigest();
+        Path staged = Files.createTempFile(incoming, "upload-", ".tmp");
+        byte[] header = new byte[ImageFormat.SIGNATURE_LENGTH];
+        long length = 0;
+
+        try {
+            try (InputStream in = content;
+                 FileChannel out = FileChannel.open(staged, StandardOpenOption.WRITE)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+
+                while ((read = in.read(buffer)) != -1) {
+                    length += read;
+
+                    if (length > maxSizeBytes) {
+                        throw new ResourceException("413", "Image content exceeds " + maxSizeBytes + " bytes",
+                                HttpStatus.PAYLOAD_TOO_LARGE);
+                    }
+
+                    if (length - read < header.length) {
+                        System.arraycopy(buffer, 0, header, (int) (length - read),
+                                (int) Math.min(read, header.length - (length - read)));
+                    }
+
+                    digest.update(buffer, 0, read);
+                    ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+
+                    while (chunk.hasRemaining()) {
+                        out.write(chunk);
+                    }
+                }
+
+                out.force(true);
+            }
+
+            if (length == 0) {
+                throw new ResourceException("400", "Image content is empty", HttpStatus.BAD_REQUEST);
+            }
+
+            if (!format.matches(header, (int) Math.min(length, header.length))) {
+                throw new ResourceException("415", "Image content is not " + format.getContentType(),
+                        HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+            }
+
+            String contentHash = toHex(digest.digest());
+            Path blob = resolve(contentHash);
+
+            if (!Files.exists(blob)) {
+                Files.createDirectories(blob.getParent());
+                // Concurrent uploads of the same bytes may both get here; the rename is atomic and both carry the same content
+                Files.move(staged, blob, StandardCopyOption.ATOMIC_MOVE);
+            } else {
+                Files.setLastModifiedTime(blob, FileTime.from(Instant.now()));
+            }
+
+            return new StoredContent(contentHash, length);
+        } finally {
+            Files.deleteIfExists(staged);
+        }
+    }
+
+    public Path resolve(String contentHash) {
+        if (contentHash == null || !contentHash.matches("[0-9a-f]{64}")) {
+            throw new IllegalArgumentException("Not a SHA-256 content hash: " + contentHash);
+        }
+
+        return root.resolve(contentHash.substring(0, 2)).resolve(contentHash);
+    }
+
+    /**
+     * Derived files sit next to their source blob, so they are shared by every image with the same content.
+     */
+    public Path resolveDerived(String contentHash, String suffix) {
+        return resolve(contentHash).resolveSibling(contentHash + "-" + suffix);
+    }
+
+    /**
+     * Content hashes of the blobs, or of derived files left without their blob, last modified before the given instant.
+     */
+    public Set<String> findContentHashesModifiedBefore(Instant instant) throws IOException {
+        Set<String> contentHashes = new HashSet<>();
+
+        try (DirectoryStream<Path> fanOut = Files.newDirectoryStream(root, "[0-9a-f][0-9a-f]")) {
+            for (Path directory : fanOut) {
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                    for (Path file : files) {
+                        Matcher matcher = CONTENT_FILE_NAME.matcher(file.getFileName().toString());
+
+                        if (matcher.matches() && isModifiedBefore(resolve(matcher.group(1)), file, instant)) {
+                            contentHashes.add(matcher.group(1));
+                        }
+                    }
+                }
+            }
+        }
+
+        return contentHashes;
+    }
+
+    /**
+     * Deletes a blob and the files derived from it, unless the blob was stored again since the given instant.
+     *
+     * @return false when the blob was kept
+     */
+    public boolean delete(String contentHash, Instant modifiedBefore) throws IOException {
+        Path blob = resolve(contentHash);
+
+        if (Files.exists(blob) && !Files.getLastModifiedTime(blob).toInstant().isBefore(modifiedBefore)) {
+            return false;
+        }
+
+        // The blob goes first, derived files without their blob are picked up again by the next listing
+        Files.deleteIfExists(blob);
+
+        try (DirectoryStream<Path> derived = Files.newDirectoryStream(blob.getParent(), contentHash + "-*")) {
+            for (Path file : derived) {
+                Files.deleteIfExists(file);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Writes a derived file through the staging directory, so readers never see it half written.
+     */
+    public void writeDerived(Path target, ContentWriter writer) throws IOException {
+        Path staged = Files.createTempFile(incoming, "derived-", ".tmp");
+
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(staged), BUFFER_SIZE)) {
+                writer.write(out);
+            }
+
+            Files.createDirectories(target.getParent());
+            Files.move(staged, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(staged);
+        }
+    }
+
+    // Derived files are judged by their blob, when it is still there
+    private static boolean isModifiedBefore(Path blob, Path file, Instant instant) throws IOException {
+        Path reference = Files.exists(blob) ? blob : file;
+
+        try {
+            return Files.getLastModifiedTime(reference).toInstant().isBefore(instant);
+        } catch (NoSuchFileException e) {
+            // Deleted meanwhile
+            return false;
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(HASH_ALGORITHM + " is not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+
+        return new String(hex);
+    }
+
+    @FunctionalInterface
+    public interface ContentWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    public static final class StoredContent {
+        private final String contentHash;
+        private final long contentLength;
+
+        private StoredContent(String contentHash, long contentLength) {
+            this.contentHash = contentHash;
+            this.contentLength = contentLength;
+        }
+
+        public String getContentHash() {
+            return contentHash;
+        }
+
+        public long getContentLength() {
+            return contentLength;
+        }
+    }
+}
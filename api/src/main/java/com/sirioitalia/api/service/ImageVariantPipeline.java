@@ -0,0 +1,435 @@
+package com.sirioitalia.api.service;
+
+import com.sirioitalia.api.exception.ResourceException;
+import com.sirioitalia.api.model.Image;
+import com.sirioitalia.api.model.ImageVariantStatus;
+import com.sirioitalia.api.service.CatalogVersionTracker.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Generates the resized variants of uploaded images in the background.
+ * <p>
+ * Jobs are rows of {@code imageVariantJobs}, written in the same transaction as the image content they refer to. A
+ * scheduled poller claims due jobs with {@code for update skip locked}, so several instances can share the queue,
+ * and hands them to a bounded worker pool. A claim is a lease: a job whose worker died is picked up again once its
+ * lease expires. Every claim counts as an attempt, so a job that keeps killing its worker is failed once its last
+ * lease expires instead of being claimed forever. Variants are keyed by the source content hash and skipped when
+ * already present, which makes retries and duplicate claims harmless.
+ */
+@Component
+public class ImageVariantPipeline {
+    private static final Logger log = LoggerFactory.getLogger(ImageVariantPipeline.class);
+
+    private static final String ENQUEUE_QUERY = "insert into \"imageVariantJobs\" "
+            + "(\"imageId\", \"contentHash\", status, attempts, \"nextAttemptAt\") values (?, ?, 'PENDING', 0, ?) "
+            + "on conflict (\"imageId\") do update set \"contentHash\" = excluded.\"contentHash\", status = 'PENDING', "
+            + "attempts = 0, \"nextAttemptAt\" = excluded.\"nextAttemptAt\", \"lockedUntil\" = null, \"lastError\" = null";
+    private static final String CLAIM_QUERY = "update \"imageVariantJobs\" set status = 'PROCESSING', "
+            + "attempts = attempts + 1, \"lockedUntil\" = ? where \"imageId\" in ("
+            + "select \"imageId\" from \"imageVariantJobs\" "
+            + "where (status = 'PENDING' and \"nextAttemptAt\" <= ?) "
+            + "or (status = 'PROCESSING' and \"lockedUntil\" < ? and attempts < ?) "
+            + "order by \"nextAttemptAt\" limit ? for update skip locked) "
+            + "returning \"imageId\", \"contentHash\", attempts";
+    private static final String EXPIRED_QUERY = "select 1 from \"imageVariantJobs\" "
+            + "where status = 'PROCESSING' and \"lockedUntil\" < ? and attempts >= ? limit 1";
+    private static final String EXPIRE_QUERY = "update \"imageVariantJobs\" set status = 'FAILED', "
+            + "\"lockedUntil\" = null, \"lastError\" = ? "
+            + "where status = 'PROCESSING' and \"lockedUntil\" < ? and attempts >= ? "
+            + "returning \"imageId\", \"contentHash\"";
+    private static final String COMPLETE_QUERY = "delete from \"imageVariantJobs\" "
+            + "where \"imageId\" = ? and \"contentHash\" = ? and status = 'PROCESSING'";
+    private static final String RESCHEDULE_QUERY = "update \"imageVariantJobs\" set status = ?, \"nextAttemptAt\" = ?, "
+            + "\"lockedUntil\" = null, \"lastError\" = ? "
+            + "where \"imageId\" = ? and \"contentHash\" = ? and status = 'PROCESSING'";
+    private static final String UPDATE_IMAGE_STATUS_QUERY = "update images set \"variantStatus\" = ? "
+            + "where id = ? and \"contentHash\" = ?";
+    private static final String CANCEL_QUERY = "delete from \"imageVariantJobs\" where \"imageId\" = ?";
+    private static final int MAX_ERROR_LENGTH = 1000;
+    // Refuse to decode anything bigger, whatever its size on disk
+    private static final long MAX_SOURCE_PIXELS = 64L * 1024 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ImageStore imageStore;
+    private final CatalogVersionTracker catalogVersionTracker;
+    private final ThreadPoolExecutor workers;
+    private final int maxAttempts;
+    private final long retryBaseDelayMillis;
+    private final long leaseSeconds;
+
+    @Autowired
+    public ImageVariantPipeline(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                ImageStore imageStore, CatalogVersionTracker catalogVersionTracker,
+                                @Value("${sirio.images.variants.pool-size:2}") int poolSize,
+                                @Value("${sirio.images.variants.queue-capacity:16}") int queueCapacity,
+                                @Value("${sirio.images.variants.max-attempts:5}") int maxAttempts,
+                                @Value("${sirio.images.variants.retry-base-delay-ms:2000}") long retryBaseDelayMillis,
+                                @Value("${sirio.images.variants.lease-seconds:300}") long leaseSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.imageStore = imageStore;
+        this.catalogVersionTracker = catalogVersionTracker;
+        this.maxAttempts = maxAttempts;
+        this.retryBaseDelayMillis = retryBaseDelayMillis;
+        this.leaseSeconds = leaseSeconds;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "image-variants-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        });
+    }
+
+
+    /**
+     * Queues variant generation for images that have content. Joins the caller's transaction, so the job exists if and
+     * only if the content change is committed.
+     */
+    public void enqueue(Collection<Image> images) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> jobs = images.stream()
+                .filter(image -> image.getContentHash() != null)
+                .map(image -> new Object[]{image.getId(), image.getContentHash(), now})
+                .collect(Collectors.toList());
+
+        if (!jobs.isEmpty()) {
+            jdbcTemplate.batchUpdate(ENQUEUE_QUERY, jobs);
+        }
+    }
+
+
+    public void cancel(Long imageId) {
+        jdbcTemplate.update(CANCEL_QUERY, imageId);
+    }
+
+
+    /**
+     * Finds the stored file of a variant, whichever format it was written in.
+     */
+    public Optional<Path> findVariant(String contentHash, Variant variant) {
+        for (String formatName : Variant.FORMAT_NAMES) {
+            Path path = imageStore.resolveDerived(contentHash, variant.getSuffix(formatName));
+
+            if (Files.exists(path)) {
+                return Optional.of(path);
+            }
+        }
+
+        return Optional.empty();
+    }
+
+
+    @Scheduled(fixedDelayString = "${sirio.images.variants.poll-interval-ms:1000}")
+    void poll() {
+        int capacity = workers.getQueue().remainingCapacity();
+
+        if (capacity == 0 || workers.isShutdown()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Job> claimedJobs;
+
+        try {
+            expireAbandonedJobs(now);
+            claimedJobs = jdbcTemplate.query(CLAIM_QUERY,
+                    (resultSet, rowNumber) -> new Job(resultSet.getLong(1), resultSet.getString(2), resultSet.getInt(3)),
+                    Timestamp.valueOf(now.plusSeconds(leaseSeconds)), Timestamp.valueOf(now), Timestamp.valueOf(now),
+                    maxAttempts, capacity);
+        } catch (DataAccessException e) {
+            log.warn("Could not claim image variant jobs", e);
+
+            return;
+        }
+
+        for (Job job : claimedJobs) {
+            try {
+                workers.execute(() -> process(job));
+            } catch (RejectedExecutionException e) {
+                // Only happens while shutting down; the lease hands the job to the next poller
+                log.debug("Image variant job {} left for a later claim", job.imageId);
+            }
+        }
+    }
+
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        workers.shutdown();
+        workers.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+
+    /**
+     * Fails the jobs whose last allowed attempt never reported back, most likely because processing them brought the
+     * worker down. The check for such jobs runs outside of a transaction, as it almost always finds none.
+     */
+    private void expireAbandonedJobs(LocalDateTime now) {
+        if (jdbcTemplate.queryForList(EXPIRED_QUERY, Integer.class, Timestamp.valueOf(now), maxAttempts).isEmpty()) {
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Object[]> expiredJobs = jdbcTemplate.query(EXPIRE_QUERY,
+                    (resultSet, rowNumber) -> new Object[]{ImageVariantStatus.FAILED.name(), resultSet.getLong(1),
+                            resultSet.getString(2)},
+                    "Lease expired on attempt " + maxAttempts, Timestamp.valueOf(now), maxAttempts);
+
+            if (!expiredJobs.isEmpty()) {
+                int[] updatedImages = jdbcTemplate.batchUpdate(UPDATE_IMAGE_STATUS_QUERY, expiredJobs);
+
+                if (IntStream.of(updatedImages).anyMatch(rows -> rows != 0)) {
+                    catalogVersionTracker.markChanged(Resource.CATALOG);
+                }
+
+                log.warn("{} image variant job(s) failed for good after their last lease expired", expiredJobs.size());
+            }
+        });
+    }
+
+
+    private void process(Job job) {
+        try {
+            generateVariants(job.contentHash);
+            transactionTemplate.executeWithoutResult(status -> {
+                if (jdbcTemplate.update(COMPLETE_QUERY, job.imageId, job.contentHash) == 1) {
+                    updateImageStatus(job, ImageVariantStatus.READY);
+                }
+            });
+        } catch (UnreadableImageException e) {
+            reschedule(job, e, false);
+        } catch (Exception e) {
+            reschedule(job, e, job.attempts < maxAttempts);
+        }
+    }
+
+
+    private void reschedule(Job job, Exception cause, boolean retry) {
+        String error = String.valueOf(cause.getMessage());
+        ImageVariantStatus status = retry ? ImageVariantStatus.PENDING : ImageVariantStatus.FAILED;
+        long delayMillis = retryBaseDelayMillis << Math.min(job.attempts - 1, 16);
+        Timestamp nextAttemptAt = Timestamp.valueOf(LocalDateTime.now().plusNanos(delayMillis * 1_000_000));
+
+        if (retry) {
+            log.info("Image variant job {} failed on attempt {}, retrying: {}", job.imageId, job.attempts, error);
+        } else {
+            log.warn("Image variant job {} failed for good after {} attempts", job.imageId, job.attempts, cause);
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(transactionStatus -> {
+                int updated = jdbcTemplate.update(RESCHEDULE_QUERY, status.name(), nextAttemptAt,
+                        error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error,
+                        job.imageId, job.contentHash);
+
+                if (updated == 1 && !retry) {
+                    updateImageStatus(job, status);
+                }
+            });
+        } catch (DataAccessException e) {
+            log.warn("Could not reschedule image variant job {}", job.imageId, e);
+        }
+    }
+
+
+    /**
+     * Item responses include the variant status of their images, and plain SQL is not seen by the entity listener.
+     */
+    private void updateImageStatus(Job job, ImageVariantStatus status) {
+        if (jdbcTemplate.update(UPDATE_IMAGE_STATUS_QUERY, status.name(), job.imageId, job.contentHash) > 0) {
+            catalogVersionTracker.markChanged(Resource.CATALOG);
+        }
+    }
+
+
+    private void generateVariants(String contentHash) throws IOException {
+        Path source = imageStore.resolve(contentHash);
+        BufferedImage sourceImage = null;
+
+        for (Variant variant : Variant.values()) {
+            if (findVariant(contentHash, variant).isPresent()) {
+                continue;
+            }
+
+            if (sourceImage == null) {
+                sourceImage = read(source);
+            }
+
+            boolean opaque = !sourceImage.getColorModel().hasAlpha();
+            BufferedImage resized = resize(sourceImage, variant.getMaxDimension(), opaque);
+            String formatName = opaque ? Variant.JPEG_FORMAT : Variant.PNG_FORMAT;
+
+            imageStore.writeDerived(imageStore.resolveDerived(contentHash, variant.getSuffix(formatName)), out -> {
+                if (!ImageIO.write(resized, formatName, out)) {
+                    throw new IOException("No image writer for " + formatName);
+                }
+            });
+        }
+    }
+
+
+    static BufferedImage read(Path source) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+
+            if (readers == null || !readers.hasNext()) {
+                throw new UnreadableImageException("Unsupported image format");
+            }
+
+            ImageReader reader = readers.next();
+
+            try {
+                reader.setInput(input, true, true);
+
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_SOURCE_PIXELS) {
+                    throw new UnreadableImageException("Image is larger than " + MAX_SOURCE_PIXELS + " pixels");
+                }
+
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+
+    /**
+     * Downscales by successive halvings, each drawn with bilinear interpolation, which keeps thumbnails sharp without
+     * the cost of a bicubic pass over the full-size image. Images are never upscaled.
+     */
+    static BufferedImage resize(BufferedImage source, int maxDimension, boolean opaque) {
+        double scale = Math.min(1d, (double) maxDimension / Math.max(source.getWidth(), source.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        BufferedImage current = source;
+
+        do {
+            int width = Math.max(targetWidth, current.getWidth() / 2);
+            int height = Math.max(targetHeight, current.getHeight() / 2);
+            BufferedImage next = new BufferedImage(width, height,
+                    opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+            Graphics2D graphics = next.createGraphics();
+
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+
+            current = next;
+        } while (current.getWidth() != targetWidth || current.getHeight() != targetHeight);
+
+        return current;
+    }
+
+
+    public enum Variant {
+        THUMBNAIL("thumbnail", 150),
+        MEDIUM("medium", 600),
+        LARGE("large", 1200);
+
+        static final String JPEG_FORMAT = "jpg";
+        static final String PNG_FORMAT = "png";
+        static final List<String> FORMAT_NAMES = List.of(JPEG_FORMAT, PNG_FORMAT);
+
+        private final String value;
+        private final int maxDimension;
+
+        Variant(String value, int maxDimension) {
+            this.value = value;
+            this.maxDimension = maxDimension;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public int getMaxDimension() {
+            return maxDimension;
+        }
+
+        /**
+         * Variants of images with transparency are PNG, all others JPEG.
+         */
+        String getSuffix(String formatName) {
+            return value + "." + formatName;
+        }
+
+        public static String getContentType(Path variantPath) {
+            return variantPath.toString().endsWith("." + PNG_FORMAT) ? "image/png" : "image/jpeg";
+        }
+
+        public static Variant fromValue(String value) throws ResourceException {
+            for (Variant variant : values()) {
+                if (variant.value.equalsIgnoreCase(value)) {
+                    return variant;
+                }
+            }
+
+            throw new ResourceException("400", "Unsupported image variant: " + value, HttpStatus.BAD_REQUEST);
+        }
+    }
+
+
+    private static final class Job {
+        private final long imageId;
+        private final String contentHash;
+        private final int attempts;
+
+        private Job(long imageId, String contentHash, int attempts) {
+            this.imageId = imageId;
+            this.contentHash = contentHash;
+            this.attempts = attempts;
+        }
+    }
+
+
+    /**
+     * Content that no retry will ever decode.
+     */
+    private static final class UnreadableImageException extends IOException {
+        private UnreadableImageException(String message) {
+            super(message);
+        }
+    }
+}
@@ -1,12 +1,18 @@
 package com.sirioitalia.api.service;
 
+import com.sirioitalia.api.event.CatalogChangedEvent;
 import com.sirioitalia.api.exception.ResourceException;
-import com.sirioitalia.api.model.Image;
 import com.sirioitalia.api.model.Item;
 import com.sirioitalia.api.projection.ItemProjection;
+import com.sirioitalia.api.projection.ItemShortView;
 import com.sirioitalia.api.repository.ItemRepository;
-import org.apache.commons.lang3.RandomUtils;
+import com.sirioitalia.api.util.CursorPage;
+import com.sirioitalia.api.util.KeysetCursor;
+import com.sirioitalia.api.util.ReferenceGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.projection.ProjectionFactory;
 import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.springframework.http.HttpStatus;
@@ -14,60 +20,105 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class ItemService {
+    private static final Logger log = LoggerFactory.getLogger(ItemService.class);
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
     private final ItemRepository itemRepository;
     private final ImageService imageService;
+    private final ReferenceGenerator referenceGenerator;
+    private final ApplicationEventPublisher eventPublisher;
     private final ProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
 
     @Autowired
-    public ItemService(ItemRepository itemRepository, ImageService imageService) {
+    public ItemService(ItemRepository itemRepository, ImageService imageService, ReferenceGenerator referenceGenerator,
+                       ApplicationEventPublisher eventPublisher) {
         this.itemRepository = itemRepository;
         this.imageService = imageService;
+        this.referenceGenerator = referenceGenerator;
+        this.eventPublisher = eventPublisher;
     }
 
 
+    @Transactional(readOnly = true)
     public Iterable<ItemProjection.Full> getItems() {
-        return itemRepository.findBy();
+        return toFullProjections(itemRepository.findCatalog());
     }
 
 
-    public ItemProjection.Full getItemById(Long id) throws ResourceException {
+    @Transactional(readOnly = true)
+    public List<ItemShortView> getItemsShort() {
+        return itemRepository.findShortViews();
+    }
+
+
+    @Transactional(readOnly = true)
+    public CursorPage<ItemProjection.Full> getItemsPage(String cursor, int size) throws ResourceException {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new ResourceException("400", "Page size must be between 1 and " + MAX_PAGE_SIZE, HttpStatus.BAD_REQUEST);
+        }
+
+        Long lastId = KeysetCursor.decode(cursor);
+
+        // Fetch one extra row to know whether a next page exists without issuing a count query
+        List<Item> items = itemRepository.findCatalogPage(lastId, size + 1);
+
+        if (items.size() <= size) {
+            return new CursorPage<>(toFullProjections(items), items.size(), null);
+        }
+
+        List<Item> page = items.subList(0, size);
+
+        return new CursorPage<>(toFullProjections(page), size, KeysetCursor.encode(page.get(size - 1).getId()));
+    }
+
 
-        return itemRepository.findProjectionById(id)
+    @Transactional(readOnly = true)
+    public ItemProjection.Full getItemById(Long id) throws ResourceException {
+        Item item = itemRepository.findCatalogItem(id)
                 .orElseThrow(() -> new ResourceException("404", "Item Not Found"));
+
+        return projectionFactory.createProjection(ItemProjection.Full.class, item);
     }
 
 
+    @Transactional
     public ItemProjection.Short createItem(Item item) throws ResourceException {
         try {
-            Item createdItem = itemRepository.save(item);
-            String reference = createdItem.getReference() + createdItem.getId().toString() + Integer.toString(RandomUtils.nextInt(1000, 9999));
-            System.out.println("reference:" + reference);
-            System.out.println("idItem:" + createdItem.getId().toString());
-            createdItem.setReference(reference);
+            Item createdItem = persistItem(item);
+            itemRepository.flush();
+            eventPublisher.publishEvent(CatalogChangedEvent.ofItems(Set.of(createdItem.getId())));
 
-            itemRepository.save(createdItem);
+            return projectionFactory.createProjection(ItemProjection.Short.class, createdItem);
+        } catch (Exception e) {
+            throw new ResourceException(e.getMessage(), e.getCause(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
 
-            if (item.getImages() != null) {
+    }
 
-                for (Image imageToAdd :
-                        item.getImages()) {
-                    imageToAdd.setItem(item);
-                    Image addedImage = imageService.createImage(imageToAdd);
 
-                    String name = String.format("%s_%s", createdItem.getReference(), addedImage.getId().toString());
-                    addedImage.setName(name);
-                    imageService.createImage(addedImage);
-                }
-            }
+    /**
+     * Persists the item and its images without flushing. The reference is generated before the insert; image names
+     * depend on the image ids from the pooled sequence and are written in the update batch of the next flush.
+     */
+    Item persistItem(Item item) {
+        String reference = referenceGenerator.nextReference(item.getReference() == null ? "" : item.getReference());
+        item.setReference(reference);
 
-            return projectionFactory.createProjection(ItemProjection.Short.class, createdItem);
-        } catch (Exception e) {
-            throw new ResourceException(e.getMessage(), e.getCause(), HttpStatus.INTERNAL_SERVER_ERROR);
+        Item createdItem = itemRepository.save(item);
+        log.debug("Created item {} with reference {}", createdItem.getId(), reference);
+
+        if (item.getImages() != null) {
+            imageService.persistImages(createdItem, item.getImages());
         }
 
+        return createdItem;
     }
 
 
@@ -86,6 +137,7 @@ public class ItemService {
                     ? itemToUpdate.getStock()
                     : itemDetails.getStock());
 
+            eventPublisher.publishEvent(CatalogChangedEvent.ofItems(Set.of(itemId)));
 
             return projectionFactory.createProjection(ItemProjection.Full.class, itemRepository.save(itemToUpdate));
 
@@ -95,11 +147,19 @@ public class ItemService {
     }
 
 
+    private List<ItemProjection.Full> toFullProjections(List<Item> items) {
+        return items.stream()
+                .map(item -> projectionFactory.createProjection(ItemProjection.Full.class, item))
+                .collect(Collectors.toList());
+    }
+
+
     @Transactional
     public void deleteItem(Long itemId) throws ResourceException {
         Item itemToDelete = itemRepository.findById(itemId)
                 .orElseThrow(() -> new ResourceException("404", "Item Not Found", HttpStatus.NOT_FOUND));
 
         itemRepository.delete(itemToDelete);
+        eventPublisher.publishEvent(CatalogChangedEvent.ofItems(Set.of(itemId)));
     }
 }
\ No newline at end of file
@@ -15,10 +15,12 @@ public class OrderLineService {
         this.orderLineRepository = orderLineRepository;
     }
 
+    @Transactional(readOnly = true)
     public Iterable<OrderLine> getOrderLines() {
         return orderLineRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
     public OrderLine getOrderById(Long orderId) {
         return orderLineRepository.findById(orderId)
                 .orElseThrow(() -> new IllegalStateException(
@@ -3,44 +3,100 @@ package com.sirioitalia.api.service;
 import com.sirioitalia.api.exception.ResourceException;
 import com.sirioitalia.api.model.Order;
 import com.sirioitalia.api.model.OrderLine;
+import com.sirioitalia.api.model.OrderSummary;
 import com.sirioitalia.api.projection.OrderProjection;
 import com.sirioitalia.api.repository.OrderRepository;
-import org.apache.commons.lang3.RandomStringUtils;
-import org.apache.commons.lang3.RandomUtils;
+import com.sirioitalia.api.repository.OrderSummaryRepository;
+import com.sirioitalia.api.util.CursorPage;
+import com.sirioitalia.api.util.KeysetCursor;
+import com.sirioitalia.api.util.ReferenceGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
-import java.util.Locale;
-import java.util.Random;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @Service
 public class OrderService {
+    public static final int DEFAULT_HISTORY_PAGE_SIZE = 20;
+    public static final int MAX_HISTORY_PAGE_SIZE = 100;
+
     private final OrderRepository orderRepository;
+    private final OrderSummaryRepository orderSummaryRepository;
     private final OrderLineService orderLineService;
+    private final StockReservationService stockReservationService;
+    private final ReferenceGenerator referenceGenerator;
+    private final CartStore cartStore;
+    private final ProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
 
     @Autowired
-    public OrderService(OrderRepository orderRepository, OrderLineService orderLineService) {
+    public OrderService(OrderRepository orderRepository, OrderSummaryRepository orderSummaryRepository,
+                        OrderLineService orderLineService, StockReservationService stockReservationService,
+                        ReferenceGenerator referenceGenerator, CartStore cartStore) {
         this.orderRepository = orderRepository;
+        this.orderSummaryRepository = orderSummaryRepository;
         this.orderLineService = orderLineService;
+        this.stockReservationService = stockReservationService;
+        this.referenceGenerator = referenceGenerator;
+        this.cartStore = cartStore;
     }
 
 
+    @Transactional(readOnly = true)
     public Iterable<OrderProjection.WithoutUserInfo> getOrders() {
-        return orderRepository.findBy();
+        return orderRepository.findListing().stream()
+                .map(order -> projectionFactory.createProjection(OrderProjection.WithoutUserInfo.class, order))
+                .collect(Collectors.toList());
     }
 
-    public OrderProjection getOrderById(Long orderId) throws ResourceException {
-        return orderRepository.findProjectionById(orderId)
+    @Transactional(readOnly = true)
+    public OrderProjection.WithUserInfo getOrderById(Long orderId) throws ResourceException {
+        Order order = orderRepository.findDetailById(orderId)
                 .orElseThrow(() -> new ResourceException(
                         "order does not exists"));
+
+        return projectionFactory.createProjection(OrderProjection.WithUserInfo.class, order);
+    }
+
+    /**
+     * One page of the order history of a user, newest first, read from the order summaries alone.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<OrderSummary> getOrderHistory(Long userId, String cursor, int size) throws ResourceException {
+        if (size < 1 || size > MAX_HISTORY_PAGE_SIZE) {
+            throw new ResourceException("400", "Page size must be between 1 and " + MAX_HISTORY_PAGE_SIZE, HttpStatus.BAD_REQUEST);
+        }
+
+        // The history walks ids downwards, so the first page starts above every id
+        Long beforeOrderId = cursor == null || cursor.isBlank() ? Long.MAX_VALUE : KeysetCursor.decode(cursor);
+
+        List<OrderSummary> summaries = orderSummaryRepository.findByUserIdAndOrderIdLessThanOrderByOrderIdDesc(
+                userId, beforeOrderId, PageRequest.of(0, size + 1));
+
+        if (summaries.size() <= size) {
+            return new CursorPage<>(summaries, summaries.size(), null);
+        }
+
+        List<OrderSummary> page = summaries.subList(0, size);
+
+        return new CursorPage<>(page, size, KeysetCursor.encode(page.get(size - 1).getOrderId()));
     }
 
     @Transactional
-    public OrderProjection createOrder(Order orderDetails) throws IllegalStateException {
+    public OrderProjection.WithoutUserInfo createOrder(Order orderDetails) throws IllegalStateException {
         try {
-            orderDetails.setOrderReference(formatOrderReference(orderDetails));
+            // Checkout is the point where the cart must be durable in the table
+            if (orderDetails.getUser() != null && orderDetails.getUser().getId() != null) {
+                cartStore.flush(orderDetails.getUser().getId());
+            }
+
+            orderDetails.setOrderReference(formatOrderReference());
             Order createdOrder = orderRepository.save(orderDetails);
             for (OrderLine orderLine :
                     orderDetails.getOrderLines()) {
@@ -49,7 +105,14 @@ public class OrderService {
                 orderLineService.createOrderLine(orderLine);
             }
 
-            return (OrderProjection) createdOrder;
+            orderSummaryRepository.summarizeOrder(createdOrder.getId());
+            // Reserved last so the item rows stay locked for as short a time as possible before commit
+            stockReservationService.reserve(orderDetails.getOrderLines());
+
+            return projectionFactory.createProjection(OrderProjection.WithoutUserInfo.class, createdOrder);
+        } catch (ResourceException ex) {
+            // Already carries its status, e.g. the 409 listing the lines that could not be reserved
+            throw ex;
         } catch (Exception ex) {
             throw new IllegalStateException(ex);
         }
@@ -63,30 +126,14 @@ public class OrderService {
                             "Order does not exists"));
 
 
+            orderSummaryRepository.deleteByOrderId(orderId);
             orderRepository.delete(orderToDelete);
         } catch (Exception ex) {
             throw new IllegalStateException(ex);
         }
     }
 
-    private String formatOrderReference(Order orderDetails) {
-        Random random = new Random();
-
-        Integer orderYear = LocalDate.now().getYear();
-        Integer orderLinesLength = orderDetails.getOrderLines().size();
-        Long orderUserId = orderDetails.getUser().getId();
-        Integer randomNumber = RandomUtils.nextInt(100, 999);
-        String randomChar = RandomStringUtils.randomAlphabetic(1).toUpperCase(Locale.ROOT);
-
-        String formattedOrderReference = String.format(
-                "ORD%s%s%s%s%s",
-                orderYear,
-                orderLinesLength,
-                orderUserId,
-                randomNumber,
-                randomChar
-        );
-
-        return formattedOrderReference;
+    private String formatOrderReference() {
+        return referenceGenerator.nextReference(String.format("ORD%s", LocalDate.now().getYear()));
     }
 }
@@ -1,9 +1,11 @@
 package com.sirioitalia.api.service;
 
+import com.sirioitalia.api.embeddable.RatingPK;
 import com.sirioitalia.api.exception.ResourceException;
 import com.sirioitalia.api.model.Rating;
 import com.sirioitalia.api.projection.RatingProjection;
 import com.sirioitalia.api.repository.RatingRepository;
+import com.sirioitalia.api.repository.RatingSummaryRepository;
 import org.springframework.data.projection.ProjectionFactory;
 import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.springframework.http.HttpStatus;
@@ -12,25 +14,45 @@ import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class RatingService {
+    private static final int NO_RATING = 0;
+
     private final RatingRepository ratingRepository;
+    private final RatingSummaryRepository ratingSummaryRepository;
     ProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
 
-    public RatingService(RatingRepository ratingRepository) {
+    public RatingService(RatingRepository ratingRepository, RatingSummaryRepository ratingSummaryRepository) {
         this.ratingRepository = ratingRepository;
+        this.ratingSummaryRepository = ratingSummaryRepository;
     }
 
+    @Transactional(readOnly = true)
     public Iterable<RatingProjection.FromItem> getRatings() {
         return ratingRepository.findBy();
     }
 
+    @Transactional(readOnly = true)
     public Iterable<Rating> getRatingsByItemId(Long itemId) {
         return ratingRepository.findByItemId(itemId);
     }
 
     @Transactional
     public Rating createRating(Rating ratingDetails) throws ResourceException {
+        if (ratingDetails.getItem() == null || ratingDetails.getUser() == null) {
+            throw new ResourceException("400", "Rating item and user are required", HttpStatus.BAD_REQUEST);
+        }
+
+        RatingPK ratingId = ratingId(ratingDetails.getItem().getId(), ratingDetails.getUser().getId());
+
+        if (ratingRepository.existsById(ratingId)) {
+            throw new ResourceException("409", "Item already rated by this user", HttpStatus.CONFLICT);
+        }
+
         try {
-            return ratingRepository.save(ratingDetails);
+            ratingDetails.setId(ratingId);
+            Rating createdRating = ratingRepository.save(ratingDetails);
+            ratingSummaryRepository.applyRatingChange(ratingId.getItemId(), NO_RATING, createdRating.getRating());
+
+            return createdRating;
         } catch (Exception ex) {
             throw new ResourceException(ex.getMessage());
         }
@@ -38,26 +60,43 @@ public class RatingService {
 
 
     @Transactional
-    public Rating updateRating(Long ratingId, Rating ratingDetails) throws ResourceException {
+    public Rating updateRating(Long itemId, Long userId, Rating ratingDetails) throws ResourceException {
+        Rating ratingToUpdate = ratingRepository.findById(ratingId(itemId, userId))
+                .orElseThrow(() -> new ResourceException("404", "Rating not found", HttpStatus.NOT_FOUND));
+
         try {
-            Rating ratingToUpdate = ratingRepository.findById(ratingId)
-                    .orElseThrow(() -> new ResourceException(HttpStatus.NOT_FOUND.getReasonPhrase(), "Rating not found"));
+            int previousRating = ratingToUpdate.getRating();
 
             ratingToUpdate.setRating(ratingDetails.getRating());
             ratingToUpdate.setComment(ratingDetails.getComment());
 
-            return ratingRepository.save(ratingToUpdate);
+            Rating updatedRating = ratingRepository.save(ratingToUpdate);
+
+            if (previousRating != updatedRating.getRating()) {
+                ratingSummaryRepository.applyRatingChange(itemId, previousRating, updatedRating.getRating());
+            }
+
+            return updatedRating;
         } catch (Exception ex) {
             throw new ResourceException(ex.getMessage());
         }
     }
 
     @Transactional
-    public void deleteRating(Long ratingId) throws ResourceException {
-        Rating ratingToDelete = ratingRepository.findById(ratingId)
-                .orElseThrow(() -> new ResourceException(HttpStatus.NOT_FOUND.getReasonPhrase(), "Rating not found"));
+    public void deleteRating(Long itemId, Long userId) throws ResourceException {
+        Rating ratingToDelete = ratingRepository.findById(ratingId(itemId, userId))
+                .orElseThrow(() -> new ResourceException("404", "Rating not found", HttpStatus.NOT_FOUND));
 
         ratingRepository.delete(ratingToDelete);
+        ratingSummaryRepository.applyRatingChange(itemId, ratingToDelete.getRating(), NO_RATING);
+    }
+
+    private static RatingPK ratingId(Long itemId, Long userId) {
+        RatingPK ratingId = new RatingPK();
+        ratingId.setItemId(itemId);
+        ratingId.setUserId(userId);
+
+        return ratingId;
     }
 
 }
@@ -4,12 +4,16 @@ import com.sirioitalia.api.exception.ResourceException;
 import com.sirioitalia.api.model.Role;
 import com.sirioitalia.api.repository.RoleRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class RoleService {
+    public static final String CACHE_NAME = "roles";
+
     private RoleRepository roleRepository;
 
     public RoleService() {
@@ -23,10 +27,14 @@ public class RoleService {
         this.roleRepository = roleRepository;
     }
 
+    @Cacheable(cacheNames = CACHE_NAME, key = "'all'")
+    @Transactional
     public Iterable<Role> getRoles() {
         return roleRepository.findAll();
     }
 
+    @Cacheable(cacheNames = CACHE_NAME, key = "#roleId")
+    @Transactional
     public Role getRoleById(Long roleId) throws ResourceException {
         Role foundedRole = roleRepository.findById(roleId)
                 .orElseThrow(() -> new ResourceException("FindRoleFailed", HttpStatus.NOT_FOUND.getReasonPhrase(), HttpStatus.NOT_FOUND));
@@ -35,6 +43,7 @@ public class RoleService {
     }
 
     @Transactional
+    @CacheEvict(cacheNames = CACHE_NAME, allEntries = true)
     public Role createRole(Role roleDetails) throws ResourceException {
         try {
             return roleRepository.save(roleDetails);
@@ -44,6 +53,7 @@ public class RoleService {
     }
 
     @Transactional
+    @CacheEvict(cacheNames = CACHE_NAME, allEntries = true)
     public void deleteRole(Long roleId) throws ResourceException {
         try {
             Role roleToDelete = roleRepository.findById(roleId)
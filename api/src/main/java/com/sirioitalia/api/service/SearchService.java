@@ -0,0 +1,75 @@
+package com.sirioitalia.api.service;
+
+import com.sirioitalia.api.event.CatalogChangedEvent;
+import com.sirioitalia.api.exception.ResourceException;
+import com.sirioitalia.api.projection.CatalogSearchResult;
+import com.sirioitalia.api.projection.SearchDocument;
+import com.sirioitalia.api.repository.ItemRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Service
+public class SearchService {
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 100;
+    // An empty IN list is not valid SQL, and no entity ever gets this id
+    private static final Set<Long> NO_IDS = Set.of(-1L);
+
+    private final ItemRepository itemRepository;
+    private final CatalogSearchIndex catalogSearchIndex;
+
+    @Autowired
+    public SearchService(ItemRepository itemRepository, CatalogSearchIndex catalogSearchIndex) {
+        this.itemRepository = itemRepository;
+        this.catalogSearchIndex = catalogSearchIndex;
+    }
+
+
+    public CatalogSearchResult search(String query, Long categoryId, Long colorId, Double minPrice, Double maxPrice,
+                                      int offset, int limit) throws ResourceException {
+        if (offset < 0 || limit < 1 || limit > MAX_LIMIT) {
+            throw new ResourceException("400", "Offset must be positive and limit between 1 and " + MAX_LIMIT,
+                    HttpStatus.BAD_REQUEST);
+        }
+
+        return catalogSearchIndex.search(query, categoryId, colorId, minPrice, maxPrice, offset, limit);
+    }
+
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIndex() {
+        catalogSearchIndex.replaceAll(itemRepository.findSearchDocuments());
+    }
+
+
+    /**
+     * Re-reads the changed entries once they are committed; anything that cannot be read back has been deleted.
+     * Listeners of concurrent commits may run in any order, the index keeps whichever read is the most recent.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        Set<Long> itemIds = new HashSet<>(event.getItemIds());
+        itemIds.addAll(catalogSearchIndex.getItemIdsOfFurnitures(event.getFurnitureIds()));
+
+        List<SearchDocument> searchDocuments = itemRepository.findSearchDocuments(
+                itemIds.isEmpty() ? NO_IDS : itemIds,
+                event.getFurnitureIds().isEmpty() ? NO_IDS : event.getFurnitureIds(),
+                event.getCategoryIds().isEmpty() ? NO_IDS : event.getCategoryIds(),
+                event.getColorIds().isEmpty() ? NO_IDS : event.getColorIds());
+
+        for (SearchDocument searchDocument : searchDocuments) {
+            catalogSearchIndex.upsert(searchDocument);
+            itemIds.remove(searchDocument.getItemId());
+        }
+
+        itemIds.forEach(catalogSearchIndex::remove);
+    }
+}
@@ -0,0 +1,68 @@
+package com.sirioitalia.api.service;
+
+import com.sirioitalia.api.exception.ResourceException;
+import com.sirioitalia.api.exception.StockReservationException;
+import com.sirioitalia.api.model.OrderLine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Service
+public class StockReservationService {
+    private static final String RESERVE_STOCK_QUERY = "update items set stock = stock - ? where id = ? and stock >= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public StockReservationService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+
+    /**
+     * Decrements the stock of every ordered item, or of none of them.
+     * <p>
+     * Each line is a conditional update, so no row is read and locked ahead of the write, and every statement goes out
+     * in a single JDBC batch. Quantities are summed per item and sorted by item id, so concurrent orders always lock
+     * the same rows in the same order and cannot deadlock. A line whose update matched no row is reported as a
+     * failure, and the exception rolls the whole reservation back.
+     */
+    @Transactional
+    public void reserve(Collection<OrderLine> orderLines) throws ResourceException {
+        Map<Long, Integer> quantities = new TreeMap<>();
+
+        for (OrderLine orderLine : orderLines) {
+            if (orderLine.getItem() == null || orderLine.getItem().getId() == null
+                    || orderLine.getQuantity() == null || orderLine.getQuantity() < 1) {
+                throw new ResourceException("400", "Order lines need an item and a positive quantity", HttpStatus.BAD_REQUEST);
+            }
+
+            quantities.merge(orderLine.getItem().getId(), orderLine.getQuantity(), Integer::sum);
+        }
+
+        List<Object[]> batchArgs = new ArrayList<>(quantities.size());
+        quantities.forEach((itemId, quantity) -> batchArgs.add(new Object[]{quantity, itemId, quantity}));
+
+        int[] updatedRows = jdbcTemplate.batchUpdate(RESERVE_STOCK_QUERY, batchArgs);
+        List<StockReservationException.Failure> failures = new ArrayList<>();
+
+        for (int i = 0; i < updatedRows.length; i++) {
+            if (updatedRows[i] == 0) {
+                Object[] args = batchArgs.get(i);
+                failures.add(new StockReservationException.Failure((Long) args[1], (Integer) args[0]));
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            throw new StockReservationException(failures);
+        }
+    }
+}
@@ -3,13 +3,14 @@ package com.sirioitalia.api.service;
 import com.sirioitalia.api.exception.ResourceException;
 import com.sirioitalia.api.model.User;
 import com.sirioitalia.api.projection.UserProjection;
+import com.sirioitalia.api.repository.OrderSummaryRepository;
+import com.sirioitalia.api.repository.RatingSummaryRepository;
 import com.sirioitalia.api.repository.UserRepository;
 import lombok.Data;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.projection.ProjectionFactory;
 import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -17,9 +18,8 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
+import java.util.stream.Collectors;
 
 
 @Service
@@ -27,31 +27,34 @@ import java.util.HashMap;
 public class UserService implements UserDetailsService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final OrderSummaryRepository orderSummaryRepository;
+    private final RatingSummaryRepository ratingSummaryRepository;
     private final ProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
 
     @Autowired
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder,
+                       OrderSummaryRepository orderSummaryRepository,
+                       RatingSummaryRepository ratingSummaryRepository) {
         this.passwordEncoder = passwordEncoder;
         this.userRepository = userRepository;
+        this.orderSummaryRepository = orderSummaryRepository;
+        this.ratingSummaryRepository = ratingSummaryRepository;
     }
 
 
+    @Transactional(readOnly = true)
     public UserProjection.Full getUserById(Long itemId) throws ResourceException {
-        UserProjection.Full user = userRepository.findProjectionById(itemId)
+        User user = userRepository.findProfileById(itemId)
                 .orElseThrow(() -> new ResourceException("FindUserFailed", HttpStatus.NOT_FOUND.getReasonPhrase(), HttpStatus.NOT_FOUND));
 
-        return user;
-    }
-
-    public UserProjection.Authentication getUserByEmail(String email) throws ResourceException {
-        UserProjection.Authentication user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new ResourceException("FindUserFailed", HttpStatus.NOT_FOUND.getReasonPhrase(), HttpStatus.NOT_FOUND));
-
-        return user;
+        return projectionFactory.createProjection(UserProjection.Full.class, user);
     }
 
+    @Transactional(readOnly = true)
     public Iterable<UserProjection.Full> getUsers() {
-        return userRepository.findBy();
+        return userRepository.findProfiles().stream()
+                .map(user -> projectionFactory.createProjection(UserProjection.Full.class, user))
+                .collect(Collectors.toList());
     }
 
     @Transactional
@@ -60,6 +63,9 @@ public class UserService implements UserDetailsService {
                 .orElseThrow(() -> new ResourceException(HttpStatus.NOT_FOUND.getReasonPhrase(), "User not found"));
 
 
+        orderSummaryRepository.deleteByUserId(userId);
+        // The ratings go with the user through the cascade, which bypasses RatingService
+        ratingSummaryRepository.removeRatingsOfUser(userId);
         userRepository.delete(userToDelete);
     }
 
@@ -153,15 +159,7 @@ public class UserService implements UserDetailsService {
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        UserProjection.Authentication foundedUser = userRepository.findByEmail(email)
+        return userRepository.findAuthenticatedUserByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("No email founded for this user"));
-
-        Collection<SimpleGrantedAuthority> authorities = new ArrayList<>();
-        authorities.add(new SimpleGrantedAuthority(foundedUser.getRoleLabel()));
-
-        String formattedPassword = String.format("%s:%s", foundedUser.getPasswordHash(), foundedUser.getPasswordSalt());
-
-        return new org.springframework.security.core.userdetails.User(foundedUser.getEmail(),
-                formattedPassword, authorities);
     }
 }
\ No newline at end of file
@@ -0,0 +1,132 @@
+package com.sirioitalia.api.util;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caps the number of connections handed out at once with a fair semaphore.
+ * <p>
+ * Meant to sit in front of a pool of the same size when requests run on virtual threads: tens of thousands of them
+ * may ask for a connection at the same time, and queueing them here, in arrival order and without holding a carrier
+ * thread, is cheaper than letting them all contend inside the pool. A permit is released when its connection is
+ * closed.
+ */
+public class ConnectionLimitingDataSource extends DelegatingDataSource {
+    // Hikari refuses anything shorter
+    static final long MIN_POOL_TIMEOUT_MILLIS = 250;
+
+    private final Semaphore permits;
+    private final long acquireTimeoutMillis;
+
+    public ConnectionLimitingDataSource(DataSource targetDataSource, int maxConnections, long acquireTimeoutMillis) {
+        super(targetDataSource);
+        this.permits = new Semaphore(maxConnections, true);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    /**
+     * Limits a Hikari pool to its own size, keeping the total wait for a connection within its configured
+     * {@code connectionTimeout}. Callers queue here, so the limiter gets three quarters of it; the pool keeps the rest
+     * for the rare case where a permit is free but the connection behind it is still being replaced.
+     */
+    public static ConnectionLimitingDataSource inFrontOf(HikariDataSource pool) {
+        long connectionTimeoutMillis = pool.getConnectionTimeout();
+        long poolTimeoutMillis = Math.max(MIN_POOL_TIMEOUT_MILLIS, connectionTimeoutMillis / 4);
+
+        pool.setConnectionTimeout(poolTimeoutMillis);
+
+        return new ConnectionLimitingDataSource(pool, pool.getMaximumPoolSize(),
+                Math.max(0, connectionTimeoutMillis - poolTimeoutMillis));
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+
+        return limit(() -> super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+
+        return limit(() -> super.getConnection(username, password));
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    public int getQueueLength() {
+        return permits.getQueueLength();
+    }
+
+    public long getAcquireTimeoutMillis() {
+        return acquireTimeoutMillis;
+    }
+
+    private void acquire() throws SQLException {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("No connection available within " + acquireTimeoutMillis
+                        + "ms, " + permits.getQueueLength() + " callers waiting");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a connection", e);
+        }
+    }
+
+    private Connection limit(ConnectionSupplier supplier) throws SQLException {
+        Connection connection;
+
+        try {
+            connection = supplier.get();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+
+        AtomicBoolean released = new AtomicBoolean();
+        InvocationHandler handler = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            } finally {
+                // Released after the connection is back in the pool, so the next waiter finds it there
+                if (method.getName().equals("close") && released.compareAndSet(false, true)) {
+                    permits.release();
+                }
+            }
+        };
+
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                handler);
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSupplier {
+        Connection get() throws SQLException;
+    }
+}
@@ -0,0 +1,18 @@
+package com.sirioitalia.api.util;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CursorPage<T> {
+    private final List<T> content;
+
+    private final int size;
+
+    private final String nextCursor;
+}
@@ -0,0 +1,91 @@
+package com.sirioitalia.api.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Raster formats accepted as image content, recognized by their signature.
+ * <p>
+ * Anything else, SVG in particular, is refused: it could carry script and is served back from the API origin.
+ */
+public enum ImageFormat {
+    JPEG("image/jpeg", 0, new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF}),
+    PNG("image/png", 0, new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'}),
+    GIF("image/gif", 0, ascii("GIF8")),
+    // A RIFF container, whose form type follows the chunk size
+    WEBP("image/webp", 8, ascii("WEBP"), ascii("RIFF"));
+
+    /**
+     * Bytes needed from the start of the content to recognize any format.
+     */
+    public static final int SIGNATURE_LENGTH = 12;
+    public static final String CONTENT_TYPES = Arrays.stream(values())
+            .map(ImageFormat::getContentType)
+            .collect(Collectors.joining(", "));
+
+    private final String contentType;
+    private final int signatureOffset;
+    private final byte[] signature;
+    private final byte[] prefix;
+
+    ImageFormat(String contentType, int signatureOffset, byte[] signature) {
+        this(contentType, signatureOffset, signature, new byte[0]);
+    }
+
+    ImageFormat(String contentType, int signatureOffset, byte[] signature, byte[] prefix) {
+        this.contentType = contentType;
+        this.signatureOffset = signatureOffset;
+        this.signature = signature;
+        this.prefix = prefix;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @param header the first bytes of the content, {@link #SIGNATURE_LENGTH} of them unless the content is shorter
+     */
+    public boolean matches(byte[] header, int length) {
+        return startsWith(header, length, 0, prefix) && startsWith(header, length, signatureOffset, signature);
+    }
+
+    /**
+     * The format named by a content type, parameters and case aside.
+     */
+    public static Optional<ImageFormat> fromContentType(String contentType) {
+        if (contentType == null) {
+            return Optional.empty();
+        }
+
+        int parameters = contentType.indexOf(';');
+        String mediaType = (parameters < 0 ? contentType : contentType.substring(0, parameters))
+                .trim()
+                .toLowerCase(Locale.ROOT);
+
+        return Arrays.stream(values())
+                .filter(format -> format.contentType.equals(mediaType))
+                .findFirst();
+    }
+
+    private static boolean startsWith(byte[] header, int length, int offset, byte[] expected) {
+        if (length < offset + expected.length) {
+            return false;
+        }
+
+        for (int i = 0; i < expected.length; i++) {
+            if (header[offset + i] != expected[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
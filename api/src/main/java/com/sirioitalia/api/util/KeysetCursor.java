@@ -0,0 +1,42 @@
+package com.sirioitalia.api.util;
+
+import com.sirioitalia.api.exception.ResourceException;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token used by keyset (seek) pagination.
+ * The token wraps the last returned id so clients cannot depend on its format.
+ */
+public final class KeysetCursor {
+    private static final String VERSION_PREFIX = "v1:";
+
+    private KeysetCursor() {
+    }
+
+    public static String encode(Long lastId) {
+        String raw = VERSION_PREFIX + lastId;
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Long decode(String cursor) throws ResourceException {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+
+            if (!raw.startsWith(VERSION_PREFIX)) {
+                throw new IllegalArgumentException("Unknown cursor version");
+            }
+
+            return Long.parseLong(raw.substring(VERSION_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new ResourceException("400", "Invalid cursor", HttpStatus.BAD_REQUEST);
+        }
+    }
+}
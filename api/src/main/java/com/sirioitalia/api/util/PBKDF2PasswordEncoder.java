@@ -1,31 +1,116 @@
 package com.sirioitalia.api.util;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.sirioitalia.api.exception.CannotPerformOperationException;
 import com.sirioitalia.api.exception.InvalidHashException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.Callable;
+
 
 public class PBKDF2PasswordEncoder implements PasswordEncoder {
+    private static final String VERIFICATION_KEY_ALGORITHM = "HmacSHA256";
+
+    private final PasswordHashingExecutor hashingExecutor;
+    private final Cache<String, Boolean> verifiedCredentials;
+    private final byte[] verificationKey;
 
     public PBKDF2PasswordEncoder() {
+        this(null, Duration.ZERO, 0);
+    }
 
+    /**
+     * @param hashingExecutor   pool running the PBKDF2 work, or null to hash on the calling thread
+     * @param verifiedTtl       how long a successful verification is remembered, zero to disable the cache
+     * @param verifiedMaxSize   upper bound of remembered verifications
+     */
+    public PBKDF2PasswordEncoder(PasswordHashingExecutor hashingExecutor, Duration verifiedTtl, long verifiedMaxSize) {
+        this.hashingExecutor = hashingExecutor;
+
+        if (verifiedTtl.isZero() || verifiedMaxSize <= 0) {
+            this.verifiedCredentials = null;
+            this.verificationKey = null;
+        } else {
+            this.verifiedCredentials = Caffeine.newBuilder()
+                    .expireAfterWrite(verifiedTtl)
+                    .maximumSize(verifiedMaxSize)
+                    .build();
+            // Entries are keyed by an HMAC under a per-process key so the cache never holds a plain fast hash of a password
+            this.verificationKey = new byte[32];
+            new SecureRandom().nextBytes(this.verificationKey);
+        }
     }
 
     public String encode(CharSequence cs) {
-        try {
-            return PasswordHash.createHash(cs.toString());
-        } catch (CannotPerformOperationException ex) {
-            throw new RuntimeException(ex);
-        }
+        return hash(() -> {
+            try {
+                return PasswordHash.createHash(cs.toString());
+            } catch (CannotPerformOperationException ex) {
+                throw new RuntimeException(ex);
+            }
+        });
     }
 
     public boolean matches(CharSequence cs, String string) {
+        String verificationKey = verificationCacheKey(cs, string);
+
+        if (verificationKey != null && verifiedCredentials.getIfPresent(verificationKey) != null) {
+            return true;
+        }
+
+        boolean matches = hash(() -> {
+            try {
+                return PasswordHash.verifyPassword(cs.toString(), string);
+            } catch (InvalidHashException ex) {
+                throw new RuntimeException(ex);
+            } catch (CannotPerformOperationException ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+
+        if (matches && verificationKey != null) {
+            verifiedCredentials.put(verificationKey, Boolean.TRUE);
+        }
+
+        return matches;
+    }
+
+    private <T> T hash(Callable<T> task) {
+        if (hashingExecutor == null) {
+            try {
+                return task.call();
+            } catch (RuntimeException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+
+        return hashingExecutor.execute(task);
+    }
+
+    private String verificationCacheKey(CharSequence rawPassword, String encodedPassword) {
+        if (verifiedCredentials == null) {
+            return null;
+        }
+
         try {
-            return PasswordHash.verifyPassword(cs.toString(), string);
-        } catch (InvalidHashException ex) {
-            throw new RuntimeException(ex);
-        } catch (CannotPerformOperationException ex) {
-            throw new RuntimeException(ex);
+            Mac mac = Mac.getInstance(VERIFICATION_KEY_ALGORITHM);
+            mac.init(new SecretKeySpec(verificationKey, VERIFICATION_KEY_ALGORITHM));
+            mac.update(encodedPassword.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+
+            return Base64.getEncoder().encodeToString(mac.doFinal(rawPassword.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException ex) {
+            return null;
         }
     }
-}
\ No newline at end of file
+}
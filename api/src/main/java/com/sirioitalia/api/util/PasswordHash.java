@@ -3,17 +3,21 @@ package com.sirioitalia.api.util;
 import com.sirioitalia.api.exception.CannotPerformOperationException;
 import com.sirioitalia.api.exception.InvalidHashException;
 
-import javax.crypto.SecretKeyFactory;
-import javax.crypto.spec.PBEKeySpec;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
-import java.security.spec.InvalidKeySpecException;
+import java.util.Arrays;
 import java.util.Base64;
 
 public class PasswordHash {
     private static final String PBKDF2_ALGORITHM = "PBKDF2WithHmacSHA1";
+    private static final String PBKDF2_PRF_ALGORITHM = "HmacSHA1";
 
     private static final int KEY_LENGTH = 32;
     private static final int SALT_BYTE_SIZE = 64;
@@ -28,6 +32,21 @@ public class PasswordHash {
 
     private static final String PEPPER = "jD7umHzn5vPGpdwBBpGrkAtzsa7uP3fYxc4HwuUczkJN9QZAPxRZHUqYU75kYVU7YAE6Tb84mtt7UhxzEdacJaNu7HrHeVEPmVLQWvKTz3QjbYHFNJvpv8ttsHZgvvWs2y8NDHj3AKWBzgTdBdcVWvdYPP69VSrM2pcwGm98GWz7PhVf7X2ThRuWgrG3TJsLHeSfrRYHq9E4hb9ZKMwEePcmQKZA53bp7Te8m4FB4WvWXfMzDT4Hz6EZsfr78cm5";
 
+    static final byte[] PEPPER_BYTES = fromBase64(PEPPER);
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    // Mac instances are not thread-safe but are expensive to look up, so each hashing thread keeps its own. Each one
+    // is re-keyed with this empty key after use, so that no password outlives its hash in a pooled thread.
+    private static final SecretKey NO_KEY = new PasswordKey(new byte[0]);
+    private static final ThreadLocal<Mac> PRF = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance(PBKDF2_PRF_ALGORITHM);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(PBKDF2_ALGORITHM + " is not supported", ex);
+        }
+    });
+
     public static String createHash(String password)
             throws CannotPerformOperationException {
         return createHash(password.toCharArray());
@@ -36,9 +55,8 @@ public class PasswordHash {
     public static String createHash(char[] password)
             throws CannotPerformOperationException {
 
-        SecureRandom random = new SecureRandom();
         byte[] salt = new byte[SALT_BYTE_SIZE];
-        random.nextBytes(salt);
+        RANDOM.nextBytes(salt);
 
         // Hash the password
         byte[] hash = pbkdf2(password, salt);
@@ -88,9 +106,6 @@ public class PasswordHash {
         byte[] testHash = pbkdf2(password, salt);
         // Compare the hashes in constant time. The password is correct if
         // both hashes match.
-        String strTestHash = toBase64(testHash);
-        String strHash = toBase64(hash);
-        String strSalt = toBase64(salt);
         return slowEquals(hash, testHash);
     }
 
@@ -101,32 +116,118 @@ public class PasswordHash {
         return diff == 0;
     }
 
+    /**
+     * PBKDF2 (RFC 8018) with HMAC-SHA1, salted with salt || pepper. Produces the same output as
+     * SecretKeyFactory "PBKDF2WithHmacSHA1" but reuses a per-thread Mac and never copies the salt and pepper.
+     */
     public static byte[] pbkdf2(char[] password, byte[] salt)
             throws CannotPerformOperationException {
-        try {
-            byte[] pepper = fromBase64(PEPPER);
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            outputStream.write(salt);
-            outputStream.write(pepper);
-
-            byte[] saltAndPepper = outputStream.toByteArray();
-
+        Mac prf = prf();
+        byte[] passwordBytes = toUtf8(password);
+        int blockLength = prf.getMacLength();
+        byte[] block = new byte[blockLength];
+        byte[] u = new byte[blockLength];
 
-            PBEKeySpec spec = new PBEKeySpec(password, saltAndPepper, PBKDF2_ITERATIONS, HASH_BYTE_SIZE * 8);
-            SecretKeyFactory skf = SecretKeyFactory.getInstance(PBKDF2_ALGORITHM);
-            return skf.generateSecret(spec).getEncoded();
-        } catch (NoSuchAlgorithmException ex) {
+        try {
+            prf.init(new PasswordKey(passwordBytes));
+
+            int blockCount = (HASH_BYTE_SIZE + blockLength - 1) / blockLength;
+            byte[] derivedKey = new byte[HASH_BYTE_SIZE];
+
+            for (int blockIndex = 1; blockIndex <= blockCount; blockIndex++) {
+                prf.update(salt);
+                prf.update(PEPPER_BYTES);
+                prf.update((byte) (blockIndex >>> 24));
+                prf.update((byte) (blockIndex >>> 16));
+                prf.update((byte) (blockIndex >>> 8));
+                prf.update((byte) blockIndex);
+                prf.doFinal(u, 0);
+                System.arraycopy(u, 0, block, 0, blockLength);
+
+                for (int iteration = 1; iteration < PBKDF2_ITERATIONS; iteration++) {
+                    prf.update(u);
+                    prf.doFinal(u, 0);
+
+                    for (int i = 0; i < blockLength; i++) {
+                        block[i] ^= u[i];
+                    }
+                }
+
+                int offset = (blockIndex - 1) * blockLength;
+                System.arraycopy(block, 0, derivedKey, offset, Math.min(blockLength, HASH_BYTE_SIZE - offset));
+            }
+
+            return derivedKey;
+        } catch (InvalidKeyException ex) {
             throw new CannotPerformOperationException(
-                    "Hash algorithm not supported.",
+                    "Password rejected as " + PBKDF2_PRF_ALGORITHM + " key.",
                     ex
             );
-        } catch (InvalidKeySpecException ex) {
+        } catch (ShortBufferException ex) {
             throw new CannotPerformOperationException(
-                    "Invalid key spec.",
+                    PBKDF2_PRF_ALGORITHM + " output does not fit the block buffer.",
                     ex
             );
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        } finally {
+            Arrays.fill(passwordBytes, (byte) 0);
+            Arrays.fill(block, (byte) 0);
+            Arrays.fill(u, (byte) 0);
+            forgetKey(prf);
+        }
+    }
+
+    private static void forgetKey(Mac prf) {
+        try {
+            prf.init(NO_KEY);
+        } catch (InvalidKeyException ex) {
+            // Never expected for a raw key; drop the instance rather than keep the password in it
+            PRF.remove();
+        }
+    }
+
+    private static Mac prf() throws CannotPerformOperationException {
+        try {
+            return PRF.get();
+        } catch (IllegalStateException ex) {
+            throw new CannotPerformOperationException(
+                    "Hash algorithm not supported.",
+                    ex.getCause()
+            );
+        }
+    }
+
+    private static byte[] toUtf8(char[] password) {
+        ByteBuffer encoded = StandardCharsets.UTF_8.encode(CharBuffer.wrap(password));
+        byte[] bytes = new byte[encoded.remaining()];
+        encoded.get(bytes);
+
+        return bytes;
+    }
+
+    /**
+     * Raw HMAC key. SecretKeySpec rejects empty keys, whereas PBKDF2 accepts an empty password.
+     */
+    private static final class PasswordKey implements SecretKey {
+        private static final long serialVersionUID = 1L;
+        private final byte[] key;
+
+        private PasswordKey(byte[] key) {
+            this.key = key;
+        }
+
+        @Override
+        public String getAlgorithm() {
+            return PBKDF2_PRF_ALGORITHM;
+        }
+
+        @Override
+        public String getFormat() {
+            return "RAW";
+        }
+
+        @Override
+        public byte[] getEncoded() {
+            return key.clone();
         }
     }
 
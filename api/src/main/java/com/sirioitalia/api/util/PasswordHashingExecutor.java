@@ -0,0 +1,108 @@
+package com.sirioitalia.api.util;
+
+import com.sirioitalia.api.exception.HashingCapacityExceededException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.*;
+
+/**
+ * Dedicated pool for PBKDF2 work. Hashing is CPU bound, so the pool is sized to the cores and fronted by a
+ * bounded queue: once the queue is full, callers are rejected immediately instead of piling up on request threads.
+ */
+public class PasswordHashingExecutor implements MeterBinder {
+    private static final String METRIC_PREFIX = "sirio.password.hashing";
+
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+    // Set once bound to a registry; hashing is not timed before that
+    private volatile MeterRegistry meterRegistry;
+
+    public PasswordHashingExecutor(int poolSize, int queueCapacity, long timeoutMillis) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("pbkdf2-");
+        threadFactory.setDaemon(true);
+
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Runs the task on the pool and waits for it. When metrics are bound, the wait is timed from the caller's point of
+     * view, queueing included, and tagged with its outcome.
+     */
+    public <T> T execute(Callable<T> task) throws HashingCapacityExceededException {
+        long start = System.nanoTime();
+        String outcome = "success";
+        Future<T> result;
+        try {
+            result = executor.submit(task);
+        } catch (RejectedExecutionException ex) {
+            record(start, "rejected");
+            throw new HashingCapacityExceededException("Password hashing queue is full", ex);
+        }
+
+        try {
+            return result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            outcome = "timeout";
+            result.cancel(true);
+            throw new HashingCapacityExceededException("Password hashing timed out", ex);
+        } catch (InterruptedException ex) {
+            outcome = "interrupted";
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new HashingCapacityExceededException("Password hashing interrupted", ex);
+        } catch (ExecutionException ex) {
+            outcome = "error";
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+
+            throw new RuntimeException(ex.getCause());
+        } finally {
+            record(start, outcome);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder(METRIC_PREFIX + ".pool.size", executor, ThreadPoolExecutor::getMaximumPoolSize)
+                .register(registry);
+        Gauge.builder(METRIC_PREFIX + ".active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(registry);
+        Gauge.builder(METRIC_PREFIX + ".queued", executor, pool -> pool.getQueue().size())
+                .register(registry);
+        this.meterRegistry = registry;
+    }
+
+    private void record(long start, String outcome) {
+        MeterRegistry registry = meterRegistry;
+
+        if (registry != null) {
+            Timer.builder(METRIC_PREFIX)
+                    .tag("outcome", outcome)
+                    .register(registry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public int getPoolSize() {
+        return executor.getMaximumPoolSize();
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,282 @@
+package com.sirioitalia.api.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Sends connections of read-only transactions to the read replicas, round robin, and everything else to the primary.
+ * <p>
+ * The transaction flag is only known once the transaction has started, so this must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}. A replica is skipped while it lags
+ * behind the primary by more than the allowed delay, or after it failed to hand out a connection, until the next
+ * lag check finds it healthy again. Without a healthy replica, reads fall back to the primary.
+ * <p>
+ * For the allowed delay after a transaction of a reader commits writes, that reader's reads stay on the primary as
+ * well, so nobody misses their own changes on a replica that has not replayed them yet. Readers are told apart by the
+ * key supplier, typically the authenticated user; work without a key, such as background jobs, never holds anyone on
+ * the primary. Whether a transaction wrote anything is asked to the database right before it commits, so reads that
+ * merely ran in a read-write transaction do not count.
+ */
+public class ReadWriteRoutingDataSource extends AbstractDataSource implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    // Zero when the replica streams from the primary and has replayed everything it received, so an idle primary does
+    // not look like lag. Without a streaming WAL receiver nothing new arrives, and the age of the last replayed
+    // transaction is the only bound left; -1 when nothing was ever replayed. Seeing the receiver status takes the
+    // pg_read_all_stats role, without it idle replicas are taken out of rotation.
+    static final String POSTGRES_REPLICATION_LAG_QUERY = "select case "
+            + "when not pg_is_in_recovery() then 0 "
+            + "when (select status from pg_stat_wal_receiver) = 'streaming' "
+            + "and pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0 "
+            + "else coalesce(extract(epoch from now() - pg_last_xact_replay_timestamp()) * 1000, -1) end";
+    // A transaction only gets an id once it writes or locks a row
+    static final String POSTGRES_WRITE_CHECK_QUERY = "select txid_current_if_assigned() is not null";
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final long maxLagMillis;
+    private final String replicationLagQuery;
+    private final String writeCheckQuery;
+    private final Supplier<String> readerKey;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    // Per reader key, the nano time until which its reads stay on the primary
+    private final Map<String, Long> primaryReadsUntil = new ConcurrentHashMap<>();
+    private ScheduledExecutorService lagCheckExecutor;
+
+    public ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicas, long maxLagMillis,
+                                      Supplier<String> readerKey) {
+        this(primary, replicas, maxLagMillis, POSTGRES_REPLICATION_LAG_QUERY, POSTGRES_WRITE_CHECK_QUERY, readerKey,
+                System::nanoTime);
+    }
+
+    ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicas, long maxLagMillis,
+                               String replicationLagQuery, String writeCheckQuery, Supplier<String> readerKey,
+                               LongSupplier nanoClock) {
+        this.primary = primary;
+        this.maxLagMillis = maxLagMillis;
+        this.replicationLagQuery = replicationLagQuery;
+        this.writeCheckQuery = writeCheckQuery;
+        this.readerKey = readerKey;
+        this.nanoClock = nanoClock;
+
+        List<Replica> replicaList = new ArrayList<>(replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            replicaList.add(new Replica(i, replicas.get(i)));
+        }
+        this.replicas = Collections.unmodifiableList(replicaList);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        String reader = readerKey.get();
+
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            Connection connection = primary.getConnection();
+
+            return reader == null || replicas.isEmpty() ? connection : trackWrites(connection, reader);
+        }
+
+        if (replicas.isEmpty() || readsOwnWrites(reader)) {
+            return primary.getConnection();
+        }
+
+        int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+
+            if (!replica.healthy) {
+                continue;
+            }
+
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException e) {
+                replica.healthy = false;
+                log.warn("Read replica {} is unavailable, skipping it until the next lag check", replica.index, e);
+            }
+        }
+
+        return primary.getConnection();
+    }
+
+    /**
+     * Pools are set up with their own credentials, so explicit ones always go to the primary.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    /**
+     * Checks the replicas at a fixed delay on a thread of their own, so an unreachable replica never holds up other
+     * scheduled work while its connection attempt times out.
+     */
+    public synchronized void startLagChecks(Duration interval) {
+        if (lagCheckExecutor != null) {
+            return;
+        }
+
+        lagCheckExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-check");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+        lagCheckExecutor.scheduleWithFixedDelay(this::checkReplicationLag, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Measures the replay delay of every replica and takes it in or out of rotation.
+     */
+    public void checkReplicationLag() {
+        long now = nanoClock.getAsLong();
+        primaryReadsUntil.values().removeIf(until -> now - until >= 0);
+
+        for (Replica replica : replicas) {
+            boolean wasHealthy = replica.healthy;
+
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.setQueryTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(maxLagMillis)));
+
+                try (ResultSet resultSet = statement.executeQuery(replicationLagQuery)) {
+                    resultSet.next();
+                    replica.lagMillis = resultSet.getLong(1);
+                    replica.healthy = replica.lagMillis >= 0 && replica.lagMillis <= maxLagMillis;
+                }
+            } catch (SQLException e) {
+                replica.lagMillis = -1;
+                replica.healthy = false;
+            }
+
+            if (wasHealthy != replica.healthy) {
+                log.info("Read replica {} is now {} (lag {}ms)", replica.index,
+                        replica.healthy ? "in rotation" : "out of rotation", replica.lagMillis);
+            }
+        }
+    }
+
+    /**
+     * Stops the lag checks and closes the replica pools. The primary is owned by whoever created it.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (lagCheckExecutor != null) {
+                lagCheckExecutor.shutdownNow();
+            }
+        }
+
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof Closeable) {
+                ((Closeable) replica.dataSource).close();
+            }
+        }
+    }
+
+    private boolean readsOwnWrites(String reader) {
+        Long until = reader == null ? null : primaryReadsUntil.get(reader);
+
+        return until != null && nanoClock.getAsLong() - until < 0;
+    }
+
+    /**
+     * Holds the reader on the primary once a transaction of theirs commits with writes. Only commits are watched;
+     * writes made in auto-commit mode are not seen.
+     */
+    private Connection trackWrites(Connection connection, String reader) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+
+            boolean wrote = method.getName().equals("commit") && hasWritten(connection);
+
+            try {
+                Object result = method.invoke(connection, args);
+
+                if (wrote) {
+                    primaryReadsUntil.merge(reader,
+                            nanoClock.getAsLong() + TimeUnit.MILLISECONDS.toNanos(maxLagMillis), Math::max);
+                }
+
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        };
+
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                handler);
+    }
+
+    private boolean hasWritten(Connection connection) {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(writeCheckQuery)) {
+            return !resultSet.next() || resultSet.getBoolean(1);
+        } catch (SQLException e) {
+            // Better to read from the primary for a while than to miss a write
+            return true;
+        }
+    }
+
+    public int getReplicaCount() {
+        return replicas.size();
+    }
+
+    public boolean isReplicaHealthy(int index) {
+        return replicas.get(index).healthy;
+    }
+
+    /**
+     * Last measured replay delay, or -1 when the replica could not be reached or its delay could not be measured.
+     */
+    public long getReplicaLagMillis(int index) {
+        return replicas.get(index).lagMillis;
+    }
+
+    private static final class Replica {
+        private final int index;
+        private final DataSource dataSource;
+        // Out of rotation until the first lag check
+        private volatile boolean healthy;
+        private volatile long lagMillis;
+
+        private Replica(int index, DataSource dataSource) {
+            this.index = index;
+            this.dataSource = dataSource;
+        }
+    }
+}
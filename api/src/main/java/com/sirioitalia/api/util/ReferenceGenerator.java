@@ -0,0 +1,73 @@
+package com.sirioitalia.api.util;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Snowflake-style generator for order and item references: 41 bits of milliseconds since 2022, 10 bits of node id and
+ * 12 bits of per-millisecond sequence, rendered as 13 Crockford base32 characters so that references sort by creation
+ * time. Two instances never collide as long as each one runs with its own node id.
+ * <p>
+ * The timestamp and the sequence share a single {@link AtomicLong} advanced by compare-and-set. When the sequence of
+ * the current millisecond is exhausted, the increment carries into the timestamp instead of waiting for the clock, and
+ * a clock moving backwards never lowers it, so the output stays strictly increasing.
+ */
+public class ReferenceGenerator {
+    public static final int MAX_NODE_ID = 1023;
+
+    private static final long EPOCH = Instant.parse("2022-01-01T00:00:00Z").toEpochMilli();
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final int ENCODED_LENGTH = 13;
+    private static final char[] CROCKFORD_ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    private final long nodeId;
+    private final LongSupplier millisClock;
+    private final AtomicLong lastState = new AtomicLong();
+
+    public ReferenceGenerator(int nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    ReferenceGenerator(int nodeId, LongSupplier millisClock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Reference node id must be between 0 and " + MAX_NODE_ID);
+        }
+
+        this.nodeId = nodeId;
+        this.millisClock = millisClock;
+    }
+
+    public long nextId() {
+        long current;
+        long next;
+
+        do {
+            current = lastState.get();
+            long now = millisClock.getAsLong() - EPOCH;
+
+            next = now > (current >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : current + 1;
+        } while (!lastState.compareAndSet(current, next));
+
+        long timestamp = next >>> SEQUENCE_BITS;
+        long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+
+        return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+    }
+
+    public String nextReference(String prefix) {
+        return prefix + encode(nextId());
+    }
+
+    static String encode(long id) {
+        char[] encoded = new char[ENCODED_LENGTH];
+
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            encoded[i] = CROCKFORD_ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+
+        return new String(encoded);
+    }
+}
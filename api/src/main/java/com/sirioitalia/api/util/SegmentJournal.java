@@ -0,0 +1,166 @@
+package com.sirioitalia.api.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Append-only line journal split into numbered segments. Writers append to the active segment; {@link #rotate()}
+ * starts a new one and returns the sequence of the last closed segment, which can be deleted with
+ * {@link #deleteUpTo(long)} once its content has been persisted elsewhere.
+ * <p>
+ * Lines are written to the OS without fsync, so the journal survives a crash of the process but not of the machine.
+ * <p>
+ * A journal owns its directory: it holds a lock on it until closed, and a second journal opened on the same directory,
+ * in this process or another one, fails instead of replaying and deleting segments it does not own.
+ */
+public class SegmentJournal {
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String LOCK_FILE_NAME = "journal.lock";
+
+    private final Path directory;
+    private final FileLock directoryLock;
+    private volatile FileChannel activeChannel;
+    private long activeSequence;
+
+    public SegmentJournal(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.directoryLock = lock(this.directory);
+        this.activeSequence = lastSequence() + 1;
+        this.activeChannel = open(activeSequence);
+    }
+
+    public void append(String line) {
+        ByteBuffer buffer = ByteBuffer.wrap((line + '\n').getBytes(StandardCharsets.UTF_8));
+
+        try {
+            // Channels opened in append mode write each buffer at the end of the file atomically
+            while (buffer.hasRemaining()) {
+                activeChannel.write(buffer);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Callers must make sure no {@link #append(String)} runs concurrently.
+     */
+    public synchronized long rotate() throws IOException {
+        FileChannel previousChannel = activeChannel;
+        long previousSequence = activeSequence;
+
+        activeSequence++;
+        activeChannel = open(activeSequence);
+        previousChannel.close();
+
+        return previousSequence;
+    }
+
+    public synchronized void deleteUpTo(long sequence) throws IOException {
+        for (Path segment : segments()) {
+            if (sequenceOf(segment) <= sequence) {
+                Files.deleteIfExists(segment);
+            }
+        }
+    }
+
+    /**
+     * Reads every closed segment in order. Only meant to be called on startup, before anything is appended.
+     */
+    public synchronized long replay(Consumer<String> consumer) throws IOException {
+        long lastReplayed = 0;
+
+        for (Path segment : segments()) {
+            long sequence = sequenceOf(segment);
+
+            if (sequence >= activeSequence) {
+                continue;
+            }
+
+            for (String line : Files.readAllLines(segment, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    consumer.accept(line);
+                }
+            }
+
+            lastReplayed = Math.max(lastReplayed, sequence);
+        }
+
+        return lastReplayed;
+    }
+
+    public synchronized void close() throws IOException {
+        activeChannel.close();
+        // Closing the channel releases the lock
+        directoryLock.channel().close();
+    }
+
+    private static FileLock lock(Path directory) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(LOCK_FILE_NAME),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException ex) {
+            // Held by another journal of this process
+            lock = null;
+        } catch (IOException ex) {
+            channel.close();
+            throw ex;
+        }
+
+        if (lock == null) {
+            channel.close();
+            throw new IllegalStateException("Journal directory " + directory + " is already in use");
+        }
+
+        return lock;
+    }
+
+    private FileChannel open(long sequence) throws IOException {
+        return FileChannel.open(directory.resolve(String.format("%s%019d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private long lastSequence() throws IOException {
+        long last = 0;
+
+        for (Path segment : segments()) {
+            last = Math.max(last, sequenceOf(segment));
+        }
+
+        return last;
+    }
+
+    private List<Path> segments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(segments::add);
+        }
+
+        segments.sort(null);
+
+        return segments;
+    }
+
+    private static long sequenceOf(Path segment) {
+        String fileName = segment.getFileName().toString();
+
+        return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,4 @@
+-- The id sequences created for the former serial columns step by 1; pooled allocation needs them to step by 50.
+ALTER SEQUENCE IF EXISTS furnitures_id_seq INCREMENT BY 50;
+ALTER SEQUENCE IF EXISTS items_id_seq INCREMENT BY 50;
+ALTER SEQUENCE IF EXISTS images_id_seq INCREMENT BY 50;
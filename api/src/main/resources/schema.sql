@@ -0,0 +1,22 @@
+-- Seeds the rating summaries of items rated before the table existed; later changes are applied incrementally.
+-- Runs on every startup: items that already have a summary are skipped before anything is aggregated.
+INSERT INTO "itemRatingSummary" ("itemId", "ratingCount", "ratingSum", "oneStar", "twoStars", "threeStars", "fourStars", "fiveStars")
+SELECT r."itemId", count(*), sum(r.rating),
+       count(*) FILTER (WHERE r.rating = 1), count(*) FILTER (WHERE r.rating = 2), count(*) FILTER (WHERE r.rating = 3),
+       count(*) FILTER (WHERE r.rating = 4), count(*) FILTER (WHERE r.rating = 5)
+FROM "itemRating" r
+WHERE NOT EXISTS (SELECT 1 FROM "itemRatingSummary" s WHERE s."itemId" = r."itemId")
+GROUP BY r."itemId"
+ON CONFLICT ("itemId") DO NOTHING;
+
+-- Seeds the summaries of orders placed before the table existed; new orders write their own at checkout.
+-- Runs on every startup: orders that already have a summary are skipped before anything is aggregated.
+INSERT INTO "orderSummaries" ("orderId", "userId", "orderReference", "orderDate", "lineCount", "itemCount", total)
+SELECT o.id, o."userId", o."orderReference", o."orderDate", count(l."itemId"),
+       coalesce(sum(l.quantity), 0), coalesce(sum(l.quantity * i.price), 0)
+FROM orders o
+LEFT JOIN "orderLines" l ON l."orderId" = o.id
+LEFT JOIN items i ON i.id = l."itemId"
+WHERE NOT EXISTS (SELECT 1 FROM "orderSummaries" s WHERE s."orderId" = o.id)
+GROUP BY o.id, o."userId", o."orderReference", o."orderDate"
+ON CONFLICT ("orderId") DO NOTHING;
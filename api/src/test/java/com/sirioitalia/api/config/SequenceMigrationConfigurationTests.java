@@ -0,0 +1,44 @@
+package com.sirioitalia.api.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Starts against a database whose id sequences were created by serial columns, stepping by 1, and whose schema is
+ * only updated, as in production.
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(SequenceMigrationConfiguration.class)
+// Inlined properties are unescaped once, H2 then needs a backslash before the semicolons separating INIT statements
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:legacy-sequences;DB_CLOSE_DELAY=-1;"
+                + "INIT=CREATE SEQUENCE IF NOT EXISTS furnitures_id_seq INCREMENT BY 1\\\\;"
+                + "CREATE SEQUENCE IF NOT EXISTS items_id_seq INCREMENT BY 1\\\\;"
+                + "CREATE SEQUENCE IF NOT EXISTS images_id_seq INCREMENT BY 1",
+        "spring.jpa.hibernate.ddl-auto=update",
+        "spring.jpa.properties.hibernate.id.sequence.increment_size_mismatch_strategy=EXCEPTION"
+})
+class SequenceMigrationConfigurationTests {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void sequencesStepByTheAllocationSizeOnceTheSessionFactoryIsUp() {
+        for (String sequence : new String[]{"FURNITURES_ID_SEQ", "ITEMS_ID_SEQ", "IMAGES_ID_SEQ"}) {
+            Long increment = jdbcTemplate.queryForObject(
+                    "select increment from information_schema.sequences where sequence_name = ?", Long.class, sequence);
+
+            assertThat(increment).isEqualTo(50L);
+        }
+    }
+}
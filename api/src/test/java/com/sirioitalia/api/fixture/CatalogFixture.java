@@ -0,0 +1,158 @@
+package com.sirioitalia.api.fixture;
+
+import com.sirioitalia.api.embeddable.Address;
+import com.sirioitalia.api.embeddable.Dimension;
+import com.sirioitalia.api.embeddable.OrderLinePK;
+import com.sirioitalia.api.embeddable.RatingPK;
+import com.sirioitalia.api.model.*;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Persists the catalog, customers and orders the JPA tests run against: one furniture of one category, with items of
+ * one color, rated and ordered by clients. The role, category, color and furniture are created on first use and
+ * shared by everything built afterwards, so a test only spells out what its assertions depend on.
+ * <p>
+ * Must be used inside a transaction; create one per test.
+ */
+public class CatalogFixture {
+    public static final String ROLE_LABEL = "ROLE_CLIENT";
+    public static final String CATEGORY_LABEL = "Lit";
+    public static final String COLOR_LABEL = "Salmon";
+    public static final String FURNITURE_LABEL = "Lit Venezia";
+    public static final String FIRST_NAME = "Cahir";
+    public static final int STOCK = 10;
+
+    private final EntityManager entityManager;
+    private Role role;
+    private Category category;
+    private Color color;
+    private Furniture furniture;
+
+    public CatalogFixture(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    public Role role() {
+        if (role == null) {
+            role = persist(new Role(null, ROLE_LABEL));
+        }
+
+        return role;
+    }
+
+    public Category category() {
+        if (category == null) {
+            category = persist(new Category(null, CATEGORY_LABEL));
+        }
+
+        return category;
+    }
+
+    public Color color() {
+        if (color == null) {
+            color = persist(new Color(null, COLOR_LABEL, "#FA8072"));
+        }
+
+        return color;
+    }
+
+    public Furniture furniture() {
+        if (furniture == null) {
+            Dimension dimension = new Dimension();
+            dimension.setWidth(90);
+            dimension.setLength(190);
+            dimension.setHeight(40);
+
+            furniture = persist(Furniture.builder()
+                    .label(FURNITURE_LABEL)
+                    .description("Lit en bois massif")
+                    .category(category())
+                    .dimension(dimension)
+                    .weight(35)
+                    .build());
+        }
+
+        return furniture;
+    }
+
+    public Item item(String reference) {
+        return item(reference, STOCK);
+    }
+
+    public Item item(String reference, int stock) {
+        return persist(Item.builder()
+                .reference(reference)
+                .stock(stock)
+                .price(199.99)
+                .furniture(furniture())
+                .color(color())
+                .build());
+    }
+
+    /**
+     * Items referenced REF0, REF1 and so on.
+     */
+    public List<Item> items(int count) {
+        List<Item> items = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            items.add(item("REF" + i));
+        }
+
+        return items;
+    }
+
+    public Image image(Item item, String name) {
+        return persist(Image.builder().name(name).item(item).build());
+    }
+
+    public User user(String email, String phoneNumber) {
+        return persist(User.builder()
+                .firstName(FIRST_NAME)
+                .lastName("Aep Dahy")
+                .email(email)
+                .passwordHash("hash")
+                .passwordSalt("salt")
+                .birthDate(LocalDate.of(1990, 1, 1))
+                .phoneNumber(phoneNumber)
+                .address(new Address("Victor Hugo", "Avenue", "93", "Paris", null))
+                .role(role())
+                .build());
+    }
+
+    public Rating rating(Item item, User user, int stars) {
+        return persist(Rating.builder()
+                .id(new RatingPK())
+                .item(item)
+                .user(user)
+                .rating(stars)
+                .comment("Très confortable")
+                .build());
+    }
+
+    public Order order(String reference, User user) {
+        return persist(Order.builder()
+                .orderReference(reference)
+                .user(user)
+                .build());
+    }
+
+    public OrderLine orderLine(Order order, Item item, int quantity) {
+        return persist(OrderLine.builder()
+                .id(new OrderLinePK())
+                .order(order)
+                .item(item)
+                .quantity(quantity)
+                .build());
+    }
+
+    private <T> T persist(T entity) {
+        entityManager.persist(entity);
+
+        return entity;
+    }
+}
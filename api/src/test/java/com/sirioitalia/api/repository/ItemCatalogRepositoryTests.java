@@ -0,0 +1,101 @@
+package com.sirioitalia.api.repository;
+
+import com.sirioitalia.api.fixture.CatalogFixture;
+import com.sirioitalia.api.model.Image;
+import com.sirioitalia.api.model.Item;
+import com.sirioitalia.api.model.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class ItemCatalogRepositoryTests {
+    private static final int ITEM_COUNT = 12;
+    private static final int MAX_STATEMENTS_PER_PAGE = 3;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+
+        CatalogFixture fixture = new CatalogFixture(entityManager.getEntityManager());
+        User firstUser = fixture.user("first@sirioitalia.com", "0600000001");
+        User secondUser = fixture.user("second@sirioitalia.com", "0600000002");
+
+        for (Item item : fixture.items(ITEM_COUNT)) {
+            fixture.image(item, "image_" + item.getReference() + "_a");
+            fixture.image(item, "image_" + item.getReference() + "_b");
+
+            for (User publisher : List.of(firstUser, secondUser)) {
+                fixture.rating(item, publisher, 4);
+            }
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    @Test
+    void catalogPageLoadsImagesRatingsAndColorsInFixedNumberOfStatements() {
+        List<Item> page = itemRepository.findCatalogPage(0L, 5);
+
+        assertThat(page).hasSize(5);
+        touchCatalogGraph(page);
+
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(MAX_STATEMENTS_PER_PAGE);
+    }
+
+    @Test
+    void fullCatalogStatementCountDoesNotGrowWithItemCount() {
+        List<Item> catalog = itemRepository.findCatalog();
+
+        assertThat(catalog).hasSize(ITEM_COUNT);
+        touchCatalogGraph(catalog);
+
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(MAX_STATEMENTS_PER_PAGE);
+    }
+
+    @Test
+    void catalogItemLoadsInFixedNumberOfStatements() {
+        Long itemId = itemRepository.findCatalogPage(0L, 1).get(0).getId();
+        entityManager.clear();
+        statistics.clear();
+
+        Item item = itemRepository.findCatalogItem(itemId).orElseThrow();
+        touchCatalogGraph(List.of(item));
+
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(MAX_STATEMENTS_PER_PAGE);
+    }
+
+    private void touchCatalogGraph(List<Item> items) {
+        for (Item item : items) {
+            assertThat(item.getColor().getLabel()).isEqualTo(CatalogFixture.COLOR_LABEL);
+            assertThat(item.getImages()).hasSize(2);
+            assertThat(item.getRatings()).hasSize(2);
+
+            item.getImages().forEach(Image::getName);
+            item.getRatings().forEach(rating -> rating.getUser().getFirstName());
+        }
+    }
+}
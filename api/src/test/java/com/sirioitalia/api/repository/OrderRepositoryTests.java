@@ -0,0 +1,107 @@
+package com.sirioitalia.api.repository;
+
+import com.sirioitalia.api.fixture.CatalogFixture;
+import com.sirioitalia.api.model.Item;
+import com.sirioitalia.api.model.Order;
+import com.sirioitalia.api.model.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.persistence.PersistenceUnitUtil;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class OrderRepositoryTests {
+    private static final int ORDER_COUNT = 6;
+    private static final int LINES_PER_ORDER = 3;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private Statistics statistics;
+
+    private PersistenceUnitUtil persistenceUnitUtil;
+
+    private Long orderId;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        persistenceUnitUtil = entityManager.getEntityManager().getEntityManagerFactory().getPersistenceUnitUtil();
+
+        CatalogFixture fixture = new CatalogFixture(entityManager.getEntityManager());
+        User user = fixture.user("cahir@sirioitalia.com", "0600000001");
+        List<Item> items = fixture.items(LINES_PER_ORDER);
+
+        for (int o = 0; o < ORDER_COUNT; o++) {
+            Order order = fixture.order("ORD" + o, user);
+
+            for (Item item : items) {
+                fixture.orderLine(order, item, 2);
+            }
+
+            orderId = order.getId();
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    @Test
+    void loadingAnOrderDoesNotLoadItsCustomerOrLines() {
+        Order order = orderRepository.findById(orderId).orElseThrow();
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(1);
+        assertThat(persistenceUnitUtil.isLoaded(order, "user")).isFalse();
+        assertThat(persistenceUnitUtil.isLoaded(order, "orderLines")).isFalse();
+    }
+
+    @Test
+    void orderDetailLoadsCustomerLinesAndItemsInOneStatement() {
+        Order order = orderRepository.findDetailById(orderId).orElseThrow();
+
+        assertThat(order.getUser().getFirstName()).isEqualTo(CatalogFixture.FIRST_NAME);
+        touchOrderLines(order);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(persistenceUnitUtil.isLoaded(order.getUser(), "role")).isFalse();
+    }
+
+    @Test
+    void orderListingStatementCountDoesNotGrowWithOrderCount() {
+        List<Order> orders = orderRepository.findListing();
+
+        assertThat(orders).hasSize(ORDER_COUNT);
+        orders.forEach(this::touchOrderLines);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(orders).noneMatch(order -> persistenceUnitUtil.isLoaded(order, "user"));
+    }
+
+    private void touchOrderLines(Order order) {
+        assertThat(order.getOrderLines()).hasSize(LINES_PER_ORDER);
+
+        order.getOrderLines().forEach(orderLine -> {
+            assertThat(orderLine.getItem().getColor().getLabel()).isEqualTo(CatalogFixture.COLOR_LABEL);
+            assertThat(orderLine.getItem().getFurniture().getCategory().getLabel())
+                    .isEqualTo(CatalogFixture.CATEGORY_LABEL);
+        });
+    }
+}
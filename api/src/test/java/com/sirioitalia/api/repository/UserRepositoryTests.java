@@ -0,0 +1,125 @@
+package com.sirioitalia.api.repository;
+
+import com.sirioitalia.api.fixture.CatalogFixture;
+import com.sirioitalia.api.model.Item;
+import com.sirioitalia.api.model.User;
+import com.sirioitalia.api.security.AuthenticatedUser;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.persistence.PersistenceUnitUtil;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class UserRepositoryTests {
+    private static final int USER_COUNT = 4;
+    private static final int ORDERS_PER_USER = 3;
+    private static final int ITEM_COUNT = 3;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Statistics statistics;
+
+    private PersistenceUnitUtil persistenceUnitUtil;
+
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        persistenceUnitUtil = entityManager.getEntityManager().getEntityManagerFactory().getPersistenceUnitUtil();
+
+        CatalogFixture fixture = new CatalogFixture(entityManager.getEntityManager());
+        List<Item> items = fixture.items(ITEM_COUNT);
+
+        for (int u = 0; u < USER_COUNT; u++) {
+            User user = fixture.user("user" + u + "@sirioitalia.com", "060000000" + u);
+
+            for (Item item : items) {
+                fixture.rating(item, user, 4);
+            }
+
+            for (int o = 0; o < ORDERS_PER_USER; o++) {
+                fixture.orderLine(fixture.order("ORD" + u + o, user), items.get(o % ITEM_COUNT), 1);
+            }
+
+            userId = user.getId();
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    @Test
+    void authenticationReadsOneFlatRow() {
+        AuthenticatedUser user = userRepository.findAuthenticatedUserByEmail("user0@sirioitalia.com").orElseThrow();
+
+        assertThat(user.getPassword()).isEqualTo("hash:salt");
+        assertThat(user.getRoleLabel()).isEqualTo(CatalogFixture.ROLE_LABEL);
+        assertThat(user.getAuthorities()).extracting(GrantedAuthority::getAuthority)
+                .containsExactly(CatalogFixture.ROLE_LABEL);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void loadingAUserDoesNotLoadItsAssociations() {
+        User user = userRepository.findById(userId).orElseThrow();
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(1);
+        assertThat(persistenceUnitUtil.isLoaded(user, "role")).isFalse();
+        assertThat(persistenceUnitUtil.isLoaded(user, "orders")).isFalse();
+        assertThat(persistenceUnitUtil.isLoaded(user, "ratings")).isFalse();
+    }
+
+    @Test
+    void profileLoadsRoleAndRatedItemsInOneStatementWithoutOrders() {
+        User user = userRepository.findProfileById(userId).orElseThrow();
+
+        touchProfile(user);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(persistenceUnitUtil.isLoaded(user, "orders")).isFalse();
+    }
+
+    @Test
+    void profileListingStatementCountDoesNotGrowWithUserCount() {
+        List<User> users = userRepository.findProfiles();
+
+        assertThat(users).hasSize(USER_COUNT);
+        users.forEach(this::touchProfile);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(users).noneMatch(user -> persistenceUnitUtil.isLoaded(user, "orders"));
+    }
+
+    private void touchProfile(User user) {
+        assertThat(user.getRole().getLabel()).isEqualTo(CatalogFixture.ROLE_LABEL);
+        assertThat(user.getRatings()).hasSize(ITEM_COUNT);
+
+        user.getRatings().forEach(rating -> {
+            assertThat(rating.getItem().getColor().getLabel()).isEqualTo(CatalogFixture.COLOR_LABEL);
+            assertThat(rating.getItem().getFurniture().getCategory().getLabel())
+                    .isEqualTo(CatalogFixture.CATEGORY_LABEL);
+        });
+    }
+}
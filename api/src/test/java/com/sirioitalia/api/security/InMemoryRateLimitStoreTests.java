@@ -0,0 +1,92 @@
+package com.sirioitalia.api.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryRateLimitStoreTests {
+    private static final RateLimit LIMIT = new RateLimit(5, Duration.ofSeconds(10));
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+    private final InMemoryRateLimitStore store = new InMemoryRateLimitStore(1000, now::get);
+
+    @Test
+    void grantsABurstUpToCapacityThenReportsTheWait() {
+        for (int i = 0; i < LIMIT.getCapacity(); i++) {
+            assertThat(store.tryConsume("key", LIMIT)).isZero();
+        }
+
+        assertThat(store.tryConsume("key", LIMIT)).isEqualTo(Duration.ofSeconds(10).toNanos());
+
+        now.addAndGet(Duration.ofSeconds(4).toNanos());
+        assertThat(store.tryConsume("key", LIMIT)).isEqualTo(Duration.ofSeconds(6).toNanos());
+    }
+
+    @Test
+    void refillsOneTokenPerIntervalAndNeverAboveCapacity() {
+        for (int i = 0; i < LIMIT.getCapacity(); i++) {
+            store.tryConsume("key", LIMIT);
+        }
+
+        now.addAndGet(Duration.ofSeconds(20).toNanos());
+        assertThat(store.tryConsume("key", LIMIT)).isZero();
+        assertThat(store.tryConsume("key", LIMIT)).isZero();
+        assertThat(store.tryConsume("key", LIMIT)).isPositive();
+
+        now.addAndGet(Duration.ofHours(1).toNanos());
+        for (int i = 0; i < LIMIT.getCapacity(); i++) {
+            assertThat(store.tryConsume("key", LIMIT)).isZero();
+        }
+        assertThat(store.tryConsume("key", LIMIT)).isPositive();
+    }
+
+    @Test
+    void keysHaveTheirOwnBuckets() {
+        for (int i = 0; i < LIMIT.getCapacity(); i++) {
+            store.tryConsume("first", LIMIT);
+        }
+
+        assertThat(store.tryConsume("first", LIMIT)).isPositive();
+        assertThat(store.tryConsume("second", LIMIT)).isZero();
+    }
+
+    @Test
+    void concurrentAttemptsNeverExceedCapacity() throws Exception {
+        int threads = 16;
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 100; i++) {
+                        if (store.tryConsume("key", LIMIT) == 0) {
+                            granted.incrementAndGet();
+                        }
+                    }
+
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(granted.get()).isEqualTo(LIMIT.getCapacity());
+    }
+}
@@ -0,0 +1,66 @@
+package com.sirioitalia.api.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoginRateLimiterTests {
+    private static final int CLIENT_CAPACITY = 20;
+    private static final int EMAIL_CAPACITY = 3;
+    private static final String EMAIL = "jane@sirio.it";
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final LoginRateLimiter limiter = new LoginRateLimiter(new InMemoryRateLimitStore(1000, now::get),
+            meterRegistry, CLIENT_CAPACITY, 3000, EMAIL_CAPACITY, 60_000);
+
+    @Test
+    void emailBucketRunsOutBeforeTheClientBucket() {
+        for (int i = 0; i < EMAIL_CAPACITY; i++) {
+            assertThat(limiter.tryAcquire("10.0.0.1", EMAIL)).isZero();
+        }
+
+        assertThat(limiter.tryAcquire("10.0.0.1", " Jane@Sirio.it ")).isEqualTo(Duration.ofMinutes(1));
+        assertThat(limiter.tryAcquire("10.0.0.1", "john@sirio.it")).isZero();
+        assertThat(meterRegistry.counter("sirio.login.rate-limited", "limit", "email").count()).isEqualTo(1);
+    }
+
+    @Test
+    void exhaustedEmailBucketDoesNotLockOutOtherAddresses() {
+        for (int i = 0; i <= EMAIL_CAPACITY; i++) {
+            limiter.tryAcquire("10.0.0.1", EMAIL);
+        }
+
+        assertThat(limiter.tryAcquire("10.0.0.1", EMAIL)).isPositive();
+        assertThat(limiter.tryAcquire("10.0.0.2", EMAIL)).isZero();
+    }
+
+    @Test
+    void successfulLoginRefillsTheEmailBucket() {
+        for (int i = 0; i < EMAIL_CAPACITY; i++) {
+            limiter.tryAcquire("10.0.0.1", EMAIL);
+        }
+
+        limiter.loginSucceeded("10.0.0.1", EMAIL);
+
+        for (int i = 0; i < EMAIL_CAPACITY; i++) {
+            assertThat(limiter.tryAcquire("10.0.0.1", EMAIL)).isZero();
+        }
+        assertThat(limiter.tryAcquire("10.0.0.1", EMAIL)).isPositive();
+    }
+
+    @Test
+    void clientBucketLimitsAttemptsAcrossEmails() {
+        for (int i = 0; i < CLIENT_CAPACITY; i++) {
+            assertThat(limiter.tryAcquire("10.0.0.1", "user" + i + "@sirio.it")).isZero();
+        }
+
+        assertThat(limiter.tryAcquire("10.0.0.1", "another@sirio.it")).isEqualTo(Duration.ofSeconds(3));
+        assertThat(limiter.tryAcquire("10.0.0.2", "another@sirio.it")).isZero();
+    }
+}
@@ -0,0 +1,68 @@
+package com.sirioitalia.api.security.filter;
+
+import com.sirioitalia.api.security.InMemoryRateLimitStore;
+import com.sirioitalia.api.security.LoginRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoginRateLimitFilterTests {
+    private static final String LOGIN_URL = "/auth/login";
+
+    // One attempt per email every 90 seconds
+    private final LoginRateLimiter limiter = new LoginRateLimiter(new InMemoryRateLimitStore(1000),
+            new SimpleMeterRegistry(), 20, 3000, 1, 90_000);
+    private final LoginRateLimitFilter filter = new LoginRateLimitFilter(limiter, LOGIN_URL, "email");
+
+    @Test
+    void attemptOverTheLimitIsRejectedWithRetryAfter() throws ServletException, IOException {
+        assertThat(login("jane@sirio.it").getStatus()).isEqualTo(200);
+
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(loginRequest("jane@sirio.it"), response, chain);
+
+        assertThat(response.getStatus()).isEqualTo(429);
+        // Rounded up to whole seconds
+        assertThat(Long.parseLong(response.getHeader(HttpHeaders.RETRY_AFTER))).isBetween(89L, 90L);
+        assertThat(chain.getRequest()).as("authentication must not run").isNull();
+    }
+
+    @Test
+    void otherEmailsAndRequestsAreNotLimited() throws ServletException, IOException {
+        login("jane@sirio.it");
+
+        assertThat(login("john@sirio.it").getStatus()).isEqualTo(200);
+
+        MockHttpServletRequest other = new MockHttpServletRequest("GET", LOGIN_URL);
+        other.setServletPath(LOGIN_URL);
+        other.addParameter("email", "jane@sirio.it");
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(other, new MockHttpServletResponse(), chain);
+
+        assertThat(chain.getRequest()).isNotNull();
+    }
+
+    private MockHttpServletResponse login(String email) throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(loginRequest(email), response, new MockFilterChain());
+
+        return response;
+    }
+
+    private static MockHttpServletRequest loginRequest(String email) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", LOGIN_URL);
+        request.setServletPath(LOGIN_URL);
+        request.addParameter("email", email);
+
+        return request;
+    }
+}
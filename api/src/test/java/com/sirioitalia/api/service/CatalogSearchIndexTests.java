@@ -0,0 +1,76 @@
+package com.sirioitalia.api.service;
+
+import com.sirioitalia.api.projection.SearchDocument;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogSearchIndexTests {
+    private static final long ITEM_ID = 1;
+
+    private final CatalogSearchIndex catalogSearchIndex = new CatalogSearchIndex();
+
+    @Test
+    void queryMatchesPrefixesWithoutAccents() {
+        catalogSearchIndex.upsert(document("Armoire en chêne", "Chambre", "Olive", 1, 1, 1, 1));
+
+        assertThat(labelsFound("armoire chene")).containsExactly("Armoire en chêne");
+        assertThat(labelsFound("arm cham")).containsExactly("Armoire en chêne");
+        assertThat(labelsFound("armoire pin")).isEmpty();
+    }
+
+    @Test
+    void olderItemVersionDoesNotReplaceANewerOne() {
+        assertThat(catalogSearchIndex.upsert(document("Lit Roma", "Lit", "Salmon", 2, 1, 1, 1))).isTrue();
+        assertThat(catalogSearchIndex.upsert(document("Lit Venezia", "Lit", "Salmon", 1, 1, 1, 1))).isFalse();
+
+        assertThat(labelsFound("roma")).containsExactly("Lit Roma");
+        assertThat(labelsFound("venezia")).isEmpty();
+    }
+
+    @Test
+    void olderCategoryOrColorVersionDoesNotReplaceANewerOne() {
+        catalogSearchIndex.upsert(document("Lit Venezia", "Canapé", "Corail", 1, 1, 2, 2));
+
+        assertThat(catalogSearchIndex.upsert(document("Lit Venezia", "Lit", "Corail", 1, 1, 1, 2))).isFalse();
+        assertThat(catalogSearchIndex.upsert(document("Lit Venezia", "Canapé", "Salmon", 1, 1, 2, 1))).isFalse();
+        assertThat(labelsFound("canape corail")).containsExactly("Lit Venezia");
+
+        assertThat(catalogSearchIndex.upsert(document("Lit Venezia", "Banquette", "Corail", 1, 1, 3, 2))).isTrue();
+        assertThat(labelsFound("banquette")).containsExactly("Lit Venezia");
+        assertThat(labelsFound("canape")).isEmpty();
+    }
+
+    @Test
+    void newerFurnitureVersionReplacesTheDocumentWhateverItsCategoryVersion() {
+        catalogSearchIndex.upsert(document("Lit Venezia", "Lit", "Salmon", 1, 1, 5, 1));
+
+        // The furniture moved to another category, whose version is unrelated to the previous one
+        assertThat(catalogSearchIndex.upsert(document("Lit Venezia", "Canapé", "Salmon", 1, 2, 1, 1))).isTrue();
+        assertThat(labelsFound("canape")).containsExactly("Lit Venezia");
+    }
+
+    @Test
+    void removedItemIsNotIndexedAgainByALateRefresh() {
+        catalogSearchIndex.upsert(document("Lit Venezia", "Lit", "Salmon", 1, 1, 1, 1));
+        catalogSearchIndex.remove(ITEM_ID);
+
+        assertThat(catalogSearchIndex.upsert(document("Lit Venezia", "Lit", "Salmon", 2, 1, 1, 1))).isFalse();
+        assertThat(labelsFound("venezia")).isEmpty();
+    }
+
+    private List<String> labelsFound(String query) {
+        return catalogSearchIndex.search(query, null, null, null, null, 0, SearchService.MAX_LIMIT).getHits().stream()
+                .map(SearchDocument::getLabel)
+                .collect(Collectors.toList());
+    }
+
+    private static SearchDocument document(String label, String category, String color, long itemVersion,
+                                           long furnitureVersion, long categoryVersion, long colorVersion) {
+        return new SearchDocument(ITEM_ID, "REF0", 199.99, 1L, label, null, 1L, category, 1L, color, 90, 190, 40,
+                itemVersion, furnitureVersion, categoryVersion, colorVersion);
+    }
+}
@@ -0,0 +1,132 @@
+package com.sirioitalia.api.service;
+
+import com.sirioitalia.api.fixture.CatalogFixture;
+import com.sirioitalia.api.service.CatalogVersionTracker.Resource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(CatalogVersionTracker.class)
+// Versions are only visible to other transactions, and other instances, once committed
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CatalogVersionTrackerTests {
+    @Autowired
+    private CatalogVersionTracker catalogVersionTracker;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        catalogVersionTracker.seedVersions();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from colors");
+        jdbcTemplate.update("delete from \"catalogVersions\"");
+    }
+
+    @Test
+    void matchingEtagIsNotModified() {
+        String etag = etag(catalogVersionTracker, Resource.CATALOG);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/items");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertThat(catalogVersionTracker.checkNotModified(new ServletWebRequest(request, response), Resource.CATALOG))
+                .isTrue();
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getHeader(HttpHeaders.LAST_MODIFIED)).isNotNull();
+    }
+
+    @Test
+    void entityWriteBumpsItsResourcesOnceCommitted() {
+        String catalog = etag(catalogVersionTracker, Resource.CATALOG);
+        String colors = etag(catalogVersionTracker, Resource.COLORS);
+        String categories = etag(catalogVersionTracker, Resource.CATEGORIES);
+
+        transactionTemplate.executeWithoutResult(status -> new CatalogFixture(entityManager).color());
+
+        assertThat(etag(catalogVersionTracker, Resource.CATALOG)).isNotEqualTo(catalog);
+        assertThat(etag(catalogVersionTracker, Resource.COLORS)).isNotEqualTo(colors);
+        assertThat(etag(catalogVersionTracker, Resource.CATEGORIES)).isEqualTo(categories);
+    }
+
+    @Test
+    void transactionBumpsEachResourceOnce() {
+        long before = version(Resource.CATALOG);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            catalogVersionTracker.markChanged(Resource.CATALOG);
+            catalogVersionTracker.markChanged(Resource.COLORS, Resource.CATALOG);
+        });
+
+        assertThat(version(Resource.CATALOG)).isEqualTo(before + 1);
+    }
+
+    @Test
+    void rollbackLeavesTheVersionUntouched() {
+        String etag = etag(catalogVersionTracker, Resource.CATALOG);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            catalogVersionTracker.markChanged(Resource.CATALOG);
+            status.setRollbackOnly();
+        });
+
+        assertThat(etag(catalogVersionTracker, Resource.CATALOG)).isEqualTo(etag);
+    }
+
+    @Test
+    void writeThroughOneInstanceInvalidatesTheValidatorsOfAnother() {
+        CatalogVersionTracker otherInstance = new CatalogVersionTracker(jdbcTemplate);
+        String etag = etag(otherInstance, Resource.CATALOG);
+
+        catalogVersionTracker.markChanged(Resource.CATALOG);
+
+        assertThat(etag(otherInstance, Resource.CATALOG)).isNotEqualTo(etag);
+    }
+
+    private static String etag(CatalogVersionTracker tracker, Resource resource) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        boolean notModified = tracker.checkNotModified(
+                new ServletWebRequest(new MockHttpServletRequest("GET", "/items"), response), resource);
+
+        assertThat(notModified).isFalse();
+
+        return response.getHeader(HttpHeaders.ETAG);
+    }
+
+    private long version(Resource resource) {
+        return jdbcTemplate.queryForObject("select version from \"catalogVersions\" where resource = ?", Long.class,
+                resource.name());
+    }
+}
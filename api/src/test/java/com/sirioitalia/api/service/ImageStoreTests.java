@@ -0,0 +1,68 @@
+package com.sirioitalia.api.service;
+
+import com.sirioitalia.api.exception.ResourceException;
+import com.sirioitalia.api.util.ImageFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ImageStoreTests {
+    private static final byte[] GIF = "GIF89a-pixels".getBytes(StandardCharsets.US_ASCII);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void contentNotMatchingItsFormatIsNotStored() throws IOException {
+        ImageStore imageStore = new ImageStore(directory.toString(), 1024);
+        byte[] svg = "<svg xmlns=\"http://www.w3.org/2000/svg\"/>".getBytes(StandardCharsets.US_ASCII);
+
+        assertThatThrownBy(() -> imageStore.store(new ByteArrayInputStream(svg), ImageFormat.PNG))
+                .isInstanceOf(ResourceException.class);
+        assertThat(imageStore.findContentHashesModifiedBefore(Instant.now().plusSeconds(60))).isEmpty();
+    }
+
+    @Test
+    void oldBlobIsDeletedWithItsDerivedFiles() throws IOException {
+        ImageStore imageStore = new ImageStore(directory.toString(), 1024);
+        String contentHash = imageStore.store(new ByteArrayInputStream(GIF), ImageFormat.GIF).getContentHash();
+        Path derived = Files.writeString(imageStore.resolveDerived(contentHash, "thumb.png"), "thumb");
+        age(imageStore.resolve(contentHash), Duration.ofDays(2));
+
+        Instant modifiedBefore = Instant.now().minus(Duration.ofDays(1));
+
+        assertThat(imageStore.findContentHashesModifiedBefore(modifiedBefore)).containsExactly(contentHash);
+        assertThat(imageStore.delete(contentHash, modifiedBefore)).isTrue();
+        assertThat(imageStore.resolve(contentHash)).doesNotExist();
+        assertThat(derived).doesNotExist();
+    }
+
+    @Test
+    void storingTheContentAgainKeepsItsBlob() throws IOException {
+        ImageStore imageStore = new ImageStore(directory.toString(), 1024);
+        String contentHash = imageStore.store(new ByteArrayInputStream(GIF), ImageFormat.GIF).getContentHash();
+        age(imageStore.resolve(contentHash), Duration.ofDays(2));
+        Instant modifiedBefore = Instant.now().minus(Duration.ofDays(1));
+
+        imageStore.store(new ByteArrayInputStream(GIF), ImageFormat.GIF);
+
+        assertThat(imageStore.findContentHashesModifiedBefore(modifiedBefore)).isEmpty();
+        assertThat(imageStore.delete(contentHash, modifiedBefore)).isFalse();
+        assertThat(imageStore.resolve(contentHash)).exists();
+    }
+
+    private static void age(Path file, Duration age) throws IOException {
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(age)));
+    }
+}
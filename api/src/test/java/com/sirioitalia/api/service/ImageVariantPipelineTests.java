@@ -0,0 +1,119 @@
+package com.sirioitalia.api.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ImageVariantPipelineTests {
+    // Signature, then the IHDR chunk: length, type, width, height, and its CRC over type and data
+    private static final int IHDR_TYPE_OFFSET = 12;
+    private static final int IHDR_WIDTH_OFFSET = 16;
+    private static final int IHDR_CRC_OFFSET = 29;
+
+    @Test
+    void resizeKeepsTheAspectRatio() {
+        BufferedImage resized = ImageVariantPipeline.resize(image(3000, 1500, BufferedImage.TYPE_INT_RGB), 600, true);
+
+        assertThat(resized.getWidth()).isEqualTo(600);
+        assertThat(resized.getHeight()).isEqualTo(300);
+    }
+
+    @Test
+    void resizeFitsPortraitImagesByTheirHeight() {
+        BufferedImage resized = ImageVariantPipeline.resize(image(900, 1350, BufferedImage.TYPE_INT_RGB), 150, true);
+
+        assertThat(resized.getWidth()).isEqualTo(100);
+        assertThat(resized.getHeight()).isEqualTo(150);
+    }
+
+    @Test
+    void resizeNeverShrinksASideBelowOnePixel() {
+        BufferedImage resized = ImageVariantPipeline.resize(image(2000, 10, BufferedImage.TYPE_INT_RGB), 150, true);
+
+        assertThat(resized.getWidth()).isEqualTo(150);
+        assertThat(resized.getHeight()).isEqualTo(1);
+    }
+
+    @Test
+    void resizeDoesNotUpscaleSmallImages() {
+        BufferedImage resized = ImageVariantPipeline.resize(image(100, 50, BufferedImage.TYPE_INT_RGB), 600, true);
+
+        assertThat(resized.getWidth()).isEqualTo(100);
+        assertThat(resized.getHeight()).isEqualTo(50);
+    }
+
+    @Test
+    void resizeKeepsTransparencyOnlyWhenAsked() {
+        BufferedImage source = image(400, 400, BufferedImage.TYPE_INT_ARGB);
+
+        assertThat(ImageVariantPipeline.resize(source, 150, false).getColorModel().hasAlpha()).isTrue();
+        assertThat(ImageVariantPipeline.resize(source, 150, true).getColorModel().hasAlpha()).isFalse();
+    }
+
+    @Test
+    void readRefusesImagesAboveThePixelLimitBeforeDecodingThem(@TempDir Path directory) throws IOException {
+        // 8193 x 8193 is just above 64 megapixels; only the header says so, the pixels are never allocated
+        Path source = png(directory.resolve("huge.png"), 8193, 8193);
+
+        assertThatThrownBy(() -> ImageVariantPipeline.read(source))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("pixels");
+    }
+
+    @Test
+    void readDecodesImagesWithinThePixelLimit(@TempDir Path directory) throws IOException {
+        Path source = Files.write(directory.resolve("small.png"), pngBytes(32, 16));
+
+        BufferedImage image = ImageVariantPipeline.read(source);
+
+        assertThat(image.getWidth()).isEqualTo(32);
+        assertThat(image.getHeight()).isEqualTo(16);
+    }
+
+    @Test
+    void readRejectsContentThatIsNotAnImage(@TempDir Path directory) throws IOException {
+        Path source = Files.writeString(directory.resolve("notes.txt"), "not an image");
+
+        assertThatThrownBy(() -> ImageVariantPipeline.read(source))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Unsupported");
+    }
+
+    private static BufferedImage image(int width, int height, int type) {
+        return new BufferedImage(width, height, type);
+    }
+
+    /**
+     * A 1 x 1 PNG whose header announces the given size instead.
+     */
+    private static Path png(Path path, int width, int height) throws IOException {
+        byte[] bytes = pngBytes(1, 1);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.putInt(IHDR_WIDTH_OFFSET, width);
+        buffer.putInt(IHDR_WIDTH_OFFSET + 4, height);
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes, IHDR_TYPE_OFFSET, IHDR_CRC_OFFSET - IHDR_TYPE_OFFSET);
+        buffer.putInt(IHDR_CRC_OFFSET, (int) crc.getValue());
+
+        return Files.write(path, bytes);
+    }
+
+    private static byte[] pngBytes(int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image(width, height, BufferedImage.TYPE_INT_RGB), "png", out);
+
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,113 @@
+package com.sirioitalia.api.service;
+
+import com.sirioitalia.api.fixture.CatalogFixture;
+import com.sirioitalia.api.model.Category;
+import com.sirioitalia.api.model.Color;
+import com.sirioitalia.api.projection.CatalogSearchResult;
+import com.sirioitalia.api.projection.SearchDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({SearchService.class, CatalogSearchIndex.class, CategoryService.class, ColorService.class})
+// The index is refreshed after commit, as it is in production
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SearchServiceTests {
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private ColorService colorService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long categoryId;
+    private Long colorId;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            CatalogFixture fixture = new CatalogFixture(entityManager);
+            fixture.item("REF0");
+
+            categoryId = fixture.category().getId();
+            colorId = fixture.color().getId();
+        });
+
+        searchService.rebuildIndex();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from items");
+        jdbcTemplate.update("delete from furnitures");
+        jdbcTemplate.update("delete from colors");
+        jdbcTemplate.update("delete from categories");
+    }
+
+    @Test
+    void renamedCategoryIsSearchableOnceCommitted() {
+        categoryService.updateCategory(categoryId, new Category(null, "Canapé"));
+
+        assertThat(labelsFound("venezia canape")).containsExactly(CatalogFixture.FURNITURE_LABEL);
+        assertThat(search("venezia").getHits().get(0).getCategory()).isEqualTo("Canapé");
+    }
+
+    @Test
+    void renamedColorIsSearchableOnceCommitted() {
+        colorService.updateColor(colorId, new Color(null, "Corail", null));
+
+        assertThat(labelsFound("venezia corail")).containsExactly(CatalogFixture.FURNITURE_LABEL);
+        assertThat(labelsFound("salmon")).isEmpty();
+    }
+
+    @Test
+    void rollbackLeavesTheIndexUntouched() {
+        transactionTemplate.executeWithoutResult(status -> {
+            categoryService.updateCategory(categoryId, new Category(null, "Canapé"));
+            status.setRollbackOnly();
+        });
+
+        assertThat(labelsFound("canape")).isEmpty();
+        assertThat(labelsFound("venezia lit")).containsExactly(CatalogFixture.FURNITURE_LABEL);
+    }
+
+    private List<String> labelsFound(String query) {
+        return search(query).getHits().stream()
+                .map(SearchDocument::getLabel)
+                .collect(Collectors.toList());
+    }
+
+    private CatalogSearchResult search(String query) {
+        return searchService.search(query, null, null, null, null, 0, SearchService.DEFAULT_LIMIT);
+    }
+}
@@ -0,0 +1,156 @@
+package com.sirioitalia.api.service;
+
+import com.sirioitalia.api.exception.StockReservationException;
+import com.sirioitalia.api.fixture.CatalogFixture;
+import com.sirioitalia.api.model.Item;
+import com.sirioitalia.api.model.OrderLine;
+import com.sirioitalia.api.repository.ItemRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(StockReservationService.class)
+// Every reservation must commit on its own, as it does in production
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockReservationServiceTests {
+    private static final int INITIAL_STOCK = 100;
+    private static final int THREADS = 32;
+    private static final int ATTEMPTS_PER_THREAD = 20;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long firstItemId;
+    private Long secondItemId;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            CatalogFixture fixture = new CatalogFixture(entityManager);
+            Item firstItem = fixture.item("CHA1", INITIAL_STOCK);
+            Item secondItem = fixture.item("CHA2", INITIAL_STOCK);
+
+            firstItemId = firstItem.getId();
+            secondItemId = secondItem.getId();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from items");
+        jdbcTemplate.update("delete from furnitures");
+        jdbcTemplate.update("delete from colors");
+        jdbcTemplate.update("delete from categories");
+    }
+
+    @Test
+    void reservationDecrementsEveryLine() {
+        stockReservationService.reserve(List.of(line(firstItemId, 3), line(secondItemId, 5), line(firstItemId, 2)));
+
+        assertThat(stockOf(firstItemId)).isEqualTo(INITIAL_STOCK - 5);
+        assertThat(stockOf(secondItemId)).isEqualTo(INITIAL_STOCK - 5);
+    }
+
+    @Test
+    void failedLineIsReportedAndNothingIsReserved() {
+        assertThatThrownBy(() -> stockReservationService.reserve(
+                List.of(line(firstItemId, 1), line(secondItemId, INITIAL_STOCK + 1))))
+                .isInstanceOfSatisfying(StockReservationException.class, ex -> {
+                    assertThat(ex.getFailures()).hasSize(1);
+                    assertThat(ex.getFailures().get(0).getItemId()).isEqualTo(secondItemId);
+                    assertThat(ex.getFailures().get(0).getRequestedQuantity()).isEqualTo(INITIAL_STOCK + 1);
+                });
+
+        assertThat(stockOf(firstItemId)).isEqualTo(INITIAL_STOCK);
+        assertThat(stockOf(secondItemId)).isEqualTo(INITIAL_STOCK);
+    }
+
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int thread = 0; thread < THREADS; thread++) {
+            // Half of the threads list the items in reverse order to make sure the lock order is not the caller's
+            List<OrderLine> lines = thread % 2 == 0
+                    ? List.of(line(firstItemId, 1), line(secondItemId, 1))
+                    : List.of(line(secondItemId, 1), line(firstItemId, 1));
+
+            futures.add(executor.submit(() -> {
+                start.await();
+
+                for (int attempt = 0; attempt < ATTEMPTS_PER_THREAD; attempt++) {
+                    try {
+                        stockReservationService.reserve(lines);
+                        reserved.incrementAndGet();
+                    } catch (StockReservationException ex) {
+                        rejected.incrementAndGet();
+                    }
+                }
+
+                return null;
+            }));
+        }
+
+        start.countDown();
+
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+
+        executor.shutdown();
+
+        assertThat(reserved.get()).isEqualTo(INITIAL_STOCK);
+        assertThat(rejected.get()).isEqualTo(THREADS * ATTEMPTS_PER_THREAD - INITIAL_STOCK);
+        assertThat(stockOf(firstItemId)).isZero();
+        assertThat(stockOf(secondItemId)).isZero();
+    }
+
+    private int stockOf(Long itemId) {
+        return itemRepository.findById(itemId).orElseThrow().getStock();
+    }
+
+    private static OrderLine line(Long itemId, int quantity) {
+        return OrderLine.builder()
+                .item(Item.builder().id(itemId).build())
+                .quantity(quantity)
+                .build();
+    }
+}
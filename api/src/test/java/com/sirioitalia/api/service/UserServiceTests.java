@@ -0,0 +1,84 @@
+package com.sirioitalia.api.service;
+
+import com.sirioitalia.api.fixture.CatalogFixture;
+import com.sirioitalia.api.model.Item;
+import com.sirioitalia.api.model.RatingSummary;
+import com.sirioitalia.api.model.User;
+import com.sirioitalia.api.repository.RatingSummaryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(UserService.class)
+class UserServiceTests {
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private RatingSummaryRepository ratingSummaryRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @MockBean
+    private PasswordEncoder passwordEncoder;
+
+    private Long deletedUserId;
+    private Long sharedItemId;
+    private Long ownItemId;
+
+    @BeforeEach
+    void setUp() {
+        CatalogFixture fixture = new CatalogFixture(entityManager.getEntityManager());
+        Item sharedItem = fixture.item("REF0");
+        Item ownItem = fixture.item("REF1");
+
+        User deletedUser = fixture.user("cahir@sirioitalia.com", "0600000000");
+        User otherUser = fixture.user("yennefer@sirioitalia.com", "0600000001");
+
+        fixture.rating(sharedItem, deletedUser, 5);
+        fixture.rating(ownItem, deletedUser, 2);
+        fixture.rating(sharedItem, otherUser, 4);
+
+        entityManager.persist(RatingSummary.builder().item(sharedItem).count(2).sum(9).fourStars(1).fiveStars(1).build());
+        entityManager.persist(RatingSummary.builder().item(ownItem).count(1).sum(2).twoStars(1).build());
+
+        entityManager.flush();
+        entityManager.clear();
+
+        deletedUserId = deletedUser.getId();
+        sharedItemId = sharedItem.getId();
+        ownItemId = ownItem.getId();
+    }
+
+    @Test
+    void deletingAUserTakesItsRatingsOutOfTheSummaries() {
+        userService.deleteUser(deletedUserId);
+        entityManager.flush();
+        entityManager.clear();
+
+        RatingSummary shared = ratingSummaryRepository.findById(sharedItemId).orElseThrow();
+        assertThat(shared.getCount()).isEqualTo(1);
+        assertThat(shared.getSum()).isEqualTo(4);
+        assertThat(shared.getFourStars()).isEqualTo(1);
+        assertThat(shared.getFiveStars()).isZero();
+
+        RatingSummary own = ratingSummaryRepository.findById(ownItemId).orElseThrow();
+        assertThat(own.getCount()).isZero();
+        assertThat(own.getSum()).isZero();
+        assertThat(own.getTwoStars()).isZero();
+        assertThat(own.getAverage()).isNull();
+    }
+}
@@ -0,0 +1,116 @@
+package com.sirioitalia.api.util;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConnectionLimitingDataSourceTests {
+    private static final int POOL_SIZE = 2;
+    private static final long CONNECTION_TIMEOUT_MILLIS = 1000;
+
+    private HikariDataSource pool;
+    private ConnectionLimitingDataSource limiter;
+
+    @BeforeEach
+    void setUp() {
+        pool = new HikariDataSource();
+        pool.setJdbcUrl("jdbc:h2:mem:limiter;DB_CLOSE_DELAY=-1");
+        pool.setMaximumPoolSize(POOL_SIZE);
+        pool.setConnectionTimeout(CONNECTION_TIMEOUT_MILLIS);
+
+        limiter = ConnectionLimitingDataSource.inFrontOf(pool);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    void limiterAndPoolWaitsAddUpToTheConfiguredTimeout() {
+        assertThat(pool.getConnectionTimeout()).isEqualTo(CONNECTION_TIMEOUT_MILLIS / 4);
+        assertThat(limiter.getAcquireTimeoutMillis() + pool.getConnectionTimeout())
+                .isEqualTo(CONNECTION_TIMEOUT_MILLIS);
+    }
+
+    @Test
+    void shortTimeoutsKeepThePoolAboveHikarisMinimum() {
+        try (HikariDataSource shortPool = new HikariDataSource()) {
+            shortPool.setConnectionTimeout(ConnectionLimitingDataSource.MIN_POOL_TIMEOUT_MILLIS);
+
+            ConnectionLimitingDataSource shortLimiter = ConnectionLimitingDataSource.inFrontOf(shortPool);
+
+            assertThat(shortPool.getConnectionTimeout())
+                    .isEqualTo(ConnectionLimitingDataSource.MIN_POOL_TIMEOUT_MILLIS);
+            assertThat(shortLimiter.getAcquireTimeoutMillis()).isZero();
+        }
+    }
+
+    @Test
+    void callerBeyondThePoolSizeTimesOutInTheLimiter() throws SQLException {
+        try (Connection first = limiter.getConnection(); Connection second = limiter.getConnection()) {
+            assertThat(limiter.getAvailablePermits()).isZero();
+
+            long start = System.nanoTime();
+
+            assertThatThrownBy(limiter::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                    .isGreaterThanOrEqualTo(limiter.getAcquireTimeoutMillis())
+                    .isLessThan(CONNECTION_TIMEOUT_MILLIS);
+        }
+
+        assertThat(limiter.getAvailablePermits()).isEqualTo(POOL_SIZE);
+    }
+
+    @Test
+    void waitingCallerGetsTheConnectionClosedByAnother() throws Exception {
+        Connection first = limiter.getConnection();
+        Connection second = limiter.getConnection();
+
+        CompletableFuture<Boolean> waiting = CompletableFuture.supplyAsync(() -> {
+            try (Connection connection = limiter.getConnection()) {
+                return connection.isValid(1);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        while (limiter.getQueueLength() == 0) {
+            Thread.onSpinWait();
+        }
+
+        first.close();
+
+        assertThat(waiting.get(CONNECTION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)).isTrue();
+        second.close();
+        assertThat(limiter.getAvailablePermits()).isEqualTo(POOL_SIZE);
+    }
+
+    @Test
+    void closingAConnectionTwiceReleasesOnePermit() throws SQLException {
+        Connection connection = limiter.getConnection();
+
+        connection.close();
+        connection.close();
+
+        assertThat(limiter.getAvailablePermits()).isEqualTo(POOL_SIZE);
+    }
+
+    @Test
+    void failedConnectionAttemptGivesThePermitBack() {
+        pool.close();
+
+        assertThatThrownBy(limiter::getConnection).isInstanceOf(SQLException.class);
+        assertThat(limiter.getAvailablePermits()).isEqualTo(POOL_SIZE);
+    }
+}
@@ -0,0 +1,51 @@
+package com.sirioitalia.api.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImageFormatTests {
+    @Test
+    void signaturesAreRecognized() {
+        assertThat(matches(ImageFormat.JPEG, new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0})).isTrue();
+        assertThat(matches(ImageFormat.PNG, new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0}))
+                .isTrue();
+        assertThat(matches(ImageFormat.GIF, ascii("GIF89a"))).isTrue();
+        assertThat(matches(ImageFormat.WEBP, ascii("RIFF\u0010\u0000\u0000\u0000WEBPVP8 "))).isTrue();
+    }
+
+    @Test
+    void contentOfAnotherFormatIsRefused() {
+        assertThat(matches(ImageFormat.PNG, ascii("GIF89a"))).isFalse();
+        assertThat(matches(ImageFormat.WEBP, ascii("RIFF\u0010\u0000\u0000\u0000WAVEfmt "))).isFalse();
+        assertThat(matches(ImageFormat.JPEG, ascii("<svg xmlns=\"http://www.w3.org/2000/svg\">"))).isFalse();
+    }
+
+    @Test
+    void contentShorterThanTheSignatureIsRefused() {
+        assertThat(matches(ImageFormat.PNG, new byte[]{(byte) 0x89, 'P', 'N', 'G'})).isFalse();
+        assertThat(matches(ImageFormat.WEBP, ascii("RIFF"))).isFalse();
+    }
+
+    @Test
+    void contentTypeIsMatchedRegardlessOfParametersAndCase() {
+        assertThat(ImageFormat.fromContentType("IMAGE/PNG; charset=binary")).contains(ImageFormat.PNG);
+        assertThat(ImageFormat.fromContentType("image/svg+xml")).isEmpty();
+        assertThat(ImageFormat.fromContentType("image/")).isEmpty();
+        assertThat(ImageFormat.fromContentType(null)).isEmpty();
+    }
+
+    // Pads the content the way the image store hands over its header
+    private static boolean matches(ImageFormat format, byte[] content) {
+        int length = Math.min(content.length, ImageFormat.SIGNATURE_LENGTH);
+
+        return format.matches(Arrays.copyOf(content, ImageFormat.SIGNATURE_LENGTH), length);
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,72 @@
+package com.sirioitalia.api.util;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PasswordHashTests {
+    private static final String EMPTY = "";
+    private static final String ASCII = "correct horse battery staple";
+    private static final String NON_ASCII = "pässwörd-€-密码";
+
+    // Computed with SecretKeyFactory PBKDF2WithHmacSHA1, salted with the bytes 0 to 63 followed by the pepper
+    private static final String STORED_SALT =
+            "AAECAwQFBgcICQoLDA0ODxAREhMUFRYXGBkaGxwdHh8gISIjJCUmJygpKissLS4vMDEyMzQ1Njc4OTo7PD0+Pw==";
+    private static final String EMPTY_HASH =
+            "1eKjj3UEKeZUxnB1mdQsYFdgZHvUfY9cz70QFt3Jdiretph19oq3eGmtouW4MR+AUnFtuBgp+Loo8PYpwuP30w==:" + STORED_SALT;
+    private static final String ASCII_HASH =
+            "ZRHjAx47fQA6r8v5E4Sf/ck6RNQt+LxqbYBk5DSO0mc/nwRXpnUtURcU+vlc5TnoFhTWAFzTiPuAw1Qn6i978A==:" + STORED_SALT;
+    private static final String NON_ASCII_HASH =
+            "tLm3xdGZbaQMm9U2NoSkLe2jXa6pxAAqu+w0pENRJSmJEXYC41uAtDa47vQK8XpimNBjd3xcqZDVjbNZiB5opw==:" + STORED_SALT;
+
+    @Test
+    void pbkdf2MatchesTheJdkImplementation() throws Exception {
+        Random random = new Random(42);
+
+        for (String password : new String[]{EMPTY, ASCII, NON_ASCII}) {
+            byte[] salt = new byte[64];
+            random.nextBytes(salt);
+
+            assertThat(PasswordHash.pbkdf2(password.toCharArray(), salt))
+                    .as("password %s", password)
+                    .isEqualTo(jdkPbkdf2(password, salt));
+        }
+    }
+
+    @Test
+    void storedHashesStillVerify() throws Exception {
+        assertThat(PasswordHash.verifyPassword(EMPTY, EMPTY_HASH)).isTrue();
+        assertThat(PasswordHash.verifyPassword(ASCII, ASCII_HASH)).isTrue();
+        assertThat(PasswordHash.verifyPassword(NON_ASCII, NON_ASCII_HASH)).isTrue();
+    }
+
+    @Test
+    void otherPasswordsDoNotVerify() throws Exception {
+        assertThat(PasswordHash.verifyPassword(ASCII, EMPTY_HASH)).isFalse();
+        assertThat(PasswordHash.verifyPassword(EMPTY, ASCII_HASH)).isFalse();
+        assertThat(PasswordHash.verifyPassword("passwörd-€-密码", NON_ASCII_HASH)).isFalse();
+    }
+
+    @Test
+    void createdHashVerifies() throws Exception {
+        String hash = PasswordHash.createHash(NON_ASCII);
+
+        assertThat(PasswordHash.verifyPassword(NON_ASCII, hash)).isTrue();
+        assertThat(PasswordHash.verifyPassword(ASCII, hash)).isFalse();
+    }
+
+    private static byte[] jdkPbkdf2(String password, byte[] salt) throws GeneralSecurityException {
+        byte[] pepperedSalt = new byte[salt.length + PasswordHash.PEPPER_BYTES.length];
+        System.arraycopy(salt, 0, pepperedSalt, 0, salt.length);
+        System.arraycopy(PasswordHash.PEPPER_BYTES, 0, pepperedSalt, salt.length, PasswordHash.PEPPER_BYTES.length);
+
+        return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1")
+                .generateSecret(new PBEKeySpec(password.toCharArray(), pepperedSalt, 10000, 64 * 8))
+                .getEncoded();
+    }
+}
@@ -0,0 +1,224 @@
+package com.sirioitalia.api.util;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two H2 databases stand in for the primary and a replica. Each one answers with its own name, and the replica
+ * reports its lag from a table the tests write to. H2 only hands out a transaction id once the transaction changed a
+ * row, like PostgreSQL.
+ */
+class ReadWriteRoutingDataSourceTests {
+    private static final long MAX_LAG_MILLIS = 1000;
+    private static final String LAG_QUERY = "select millis from lag";
+    private static final String WRITE_CHECK_QUERY = "select transaction_id() is not null";
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+    private final AtomicReference<String> reader = new AtomicReference<>();
+
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    void setUp() {
+        primary = new JdbcTemplate(database("primary"));
+        replica = new JdbcTemplate(database("replica"));
+
+        for (JdbcTemplate database : List.of(primary, replica)) {
+            database.execute("create table whoami (name varchar(16))");
+            database.execute("create table lag (millis bigint)");
+        }
+        primary.execute("create table writes (id int)");
+        primary.update("insert into whoami values ('primary')");
+        replica.update("insert into whoami values ('replica')");
+        replica.update("insert into lag values (0)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        primary.execute("drop all objects");
+        replica.execute("drop all objects");
+    }
+
+    @Test
+    void readOnlyTransactionsGoToAHealthyReplica() {
+        ReadWriteRoutingDataSource routing = routing(replica.getDataSource());
+        routing.checkReplicationLag();
+
+        assertThat(servedBy(routing, true)).isEqualTo("replica");
+    }
+
+    @Test
+    void readWriteTransactionsGoToThePrimary() {
+        ReadWriteRoutingDataSource routing = routing(replica.getDataSource());
+        routing.checkReplicationLag();
+
+        assertThat(servedBy(routing, false)).isEqualTo("primary");
+    }
+
+    @Test
+    void replicasStayOutOfRotationUntilTheFirstLagCheck() {
+        ReadWriteRoutingDataSource routing = routing(replica.getDataSource());
+
+        assertThat(servedBy(routing, true)).isEqualTo("primary");
+    }
+
+    @Test
+    void laggingReplicaIsSkippedUntilItCatchesUp() {
+        ReadWriteRoutingDataSource routing = routing(replica.getDataSource());
+
+        replica.update("update lag set millis = ?", MAX_LAG_MILLIS + 1);
+        routing.checkReplicationLag();
+
+        assertThat(routing.isReplicaHealthy(0)).isFalse();
+        assertThat(servedBy(routing, true)).isEqualTo("primary");
+
+        replica.update("update lag set millis = 0");
+        routing.checkReplicationLag();
+
+        assertThat(routing.isReplicaHealthy(0)).isTrue();
+        assertThat(servedBy(routing, true)).isEqualTo("replica");
+    }
+
+    @Test
+    void replicaWhoseLagCannotBeMeasuredIsSkipped() {
+        ReadWriteRoutingDataSource routing = routing(replica.getDataSource());
+
+        replica.update("update lag set millis = -1");
+        routing.checkReplicationLag();
+
+        assertThat(routing.isReplicaHealthy(0)).isFalse();
+        assertThat(servedBy(routing, true)).isEqualTo("primary");
+    }
+
+    @Test
+    void unreachableReplicaFallsBackToThePrimary() {
+        JdbcDataSource missing = new JdbcDataSource();
+        missing.setURL("jdbc:h2:mem:missing;IFEXISTS=TRUE");
+        ReadWriteRoutingDataSource routing = routing(missing);
+
+        routing.checkReplicationLag();
+
+        assertThat(routing.isReplicaHealthy(0)).isFalse();
+        assertThat(routing.getReplicaLagMillis(0)).isEqualTo(-1);
+        assertThat(servedBy(routing, true)).isEqualTo("primary");
+    }
+
+    @Test
+    void writerReadsFromThePrimaryForTheAllowedLagAfterTheirWriteCommits() {
+        ReadWriteRoutingDataSource routing = routing(replica.getDataSource());
+        routing.checkReplicationLag();
+
+        reader.set("cahir@sirioitalia.com");
+        write(routing);
+
+        // The replica has not seen the write yet
+        assertThat(servedBy(routing, true)).isEqualTo("primary");
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(MAX_LAG_MILLIS));
+        assertThat(servedBy(routing, true)).isEqualTo("replica");
+    }
+
+    @Test
+    void otherReadersStayOnTheReplicaAfterAWrite() {
+        ReadWriteRoutingDataSource routing = routing(replica.getDataSource());
+        routing.checkReplicationLag();
+
+        reader.set("cahir@sirioitalia.com");
+        write(routing);
+
+        reader.set("yennefer@sirioitalia.com");
+        assertThat(servedBy(routing, true)).isEqualTo("replica");
+
+        reader.set(null);
+        assertThat(servedBy(routing, true)).isEqualTo("replica");
+    }
+
+    @Test
+    void readWriteTransactionWithoutWritesKeepsTheReaderOnTheReplica() {
+        ReadWriteRoutingDataSource routing = routing(replica.getDataSource());
+        routing.checkReplicationLag();
+
+        reader.set("cahir@sirioitalia.com");
+        servedBy(routing, false);
+
+        assertThat(servedBy(routing, true)).isEqualTo("replica");
+    }
+
+    @Test
+    void writesWithoutAReaderHoldNobodyOnThePrimary() {
+        ReadWriteRoutingDataSource routing = routing(replica.getDataSource());
+        routing.checkReplicationLag();
+
+        write(routing);
+
+        reader.set("cahir@sirioitalia.com");
+        assertThat(servedBy(routing, true)).isEqualTo("replica");
+    }
+
+    @Test
+    void rolledBackWritesKeepTheReaderOnTheReplica() {
+        ReadWriteRoutingDataSource routing = routing(replica.getDataSource());
+        routing.checkReplicationLag();
+
+        reader.set("cahir@sirioitalia.com");
+        DataSource dataSource = lazy(routing);
+        transactionTemplate(dataSource, false).executeWithoutResult(status -> {
+            new JdbcTemplate(dataSource).update("insert into writes values (1)");
+            status.setRollbackOnly();
+        });
+
+        assertThat(servedBy(routing, true)).isEqualTo("replica");
+    }
+
+    private ReadWriteRoutingDataSource routing(DataSource replicaDataSource) {
+        return new ReadWriteRoutingDataSource(primary.getDataSource(), List.of(replicaDataSource), MAX_LAG_MILLIS,
+                LAG_QUERY, WRITE_CHECK_QUERY, reader::get, now::get);
+    }
+
+    private void write(ReadWriteRoutingDataSource routing) {
+        DataSource dataSource = lazy(routing);
+
+        transactionTemplate(dataSource, false).executeWithoutResult(status ->
+                new JdbcTemplate(dataSource).update("insert into writes values (1)"));
+    }
+
+    private String servedBy(ReadWriteRoutingDataSource routing, boolean readOnly) {
+        DataSource dataSource = lazy(routing);
+
+        return transactionTemplate(dataSource, readOnly).execute(status ->
+                new JdbcTemplate(dataSource).queryForObject("select name from whoami", String.class));
+    }
+
+    private static DataSource lazy(ReadWriteRoutingDataSource routing) {
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    private static TransactionTemplate transactionTemplate(DataSource dataSource, boolean readOnly) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transactionTemplate.setReadOnly(readOnly);
+
+        return transactionTemplate;
+    }
+
+    private static DataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:routing-" + name + ";DB_CLOSE_DELAY=-1");
+
+        return dataSource;
+    }
+}
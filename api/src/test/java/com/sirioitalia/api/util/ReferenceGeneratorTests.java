@@ -0,0 +1,157 @@
+package com.sirioitalia.api.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReferenceGeneratorTests {
+    private static final long NOW = Instant.parse("2022-06-15T12:00:00Z").toEpochMilli();
+    private static final int NODE_ID = 42;
+    private static final int SEQUENCES_PER_MILLI = 4096;
+
+    private final AtomicLong clock = new AtomicLong(NOW);
+    private final ReferenceGenerator generator = new ReferenceGenerator(NODE_ID, clock::get);
+
+    @Test
+    void referenceIsThePrefixFollowedByThirteenCrockfordCharacters() {
+        assertThat(generator.nextReference("CMD")).matches("CMD[0-9A-HJKMNP-TV-Z]{13}");
+    }
+
+    @Test
+    void encodeUsesCrockfordBase32WithoutAmbiguousLetters() {
+        assertThat(ReferenceGenerator.encode(0)).isEqualTo("0000000000000");
+        assertThat(ReferenceGenerator.encode(31)).isEqualTo("000000000000Z");
+        assertThat(ReferenceGenerator.encode(32)).isEqualTo("0000000000010");
+        assertThat(ReferenceGenerator.encode(Long.MAX_VALUE)).isEqualTo("7ZZZZZZZZZZZZ");
+    }
+
+    @Test
+    void idCarriesTheTimestampAndNodeId() {
+        long id = generator.nextId();
+
+        assertThat(timestamp(id)).isEqualTo(NOW - Instant.parse("2022-01-01T00:00:00Z").toEpochMilli());
+        assertThat(nodeId(id)).isEqualTo(NODE_ID);
+        assertThat(sequence(id)).isZero();
+    }
+
+    @Test
+    void referencesSortByCreationTime() {
+        String first = generator.nextReference("");
+        String sameMilli = generator.nextReference("");
+        clock.addAndGet(1);
+        String nextMilli = generator.nextReference("");
+
+        assertThat(List.of(first, sameMilli, nextMilli)).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    void exhaustedSequenceRollsOverIntoTheNextMillisecond() {
+        long first = generator.nextId();
+        long last = first;
+
+        for (int i = 1; i < SEQUENCES_PER_MILLI; i++) {
+            last = generator.nextId();
+        }
+
+        assertThat(timestamp(last)).isEqualTo(timestamp(first));
+        assertThat(sequence(last)).isEqualTo(SEQUENCES_PER_MILLI - 1);
+
+        long rolledOver = generator.nextId();
+
+        assertThat(rolledOver).isGreaterThan(last);
+        assertThat(timestamp(rolledOver)).isEqualTo(timestamp(first) + 1);
+        assertThat(sequence(rolledOver)).isZero();
+        assertThat(nodeId(rolledOver)).isEqualTo(NODE_ID);
+    }
+
+    @Test
+    void clockCatchingUpWithARolledOverTimestampKeepsCounting() {
+        long last = 0;
+        for (int i = 0; i <= SEQUENCES_PER_MILLI; i++) {
+            last = generator.nextId();
+        }
+
+        // The clock now reaches the millisecond the sequence already borrowed
+        clock.addAndGet(1);
+        long next = generator.nextId();
+
+        assertThat(next).isEqualTo(last + 1);
+    }
+
+    @Test
+    void clockMovingBackwardsNeverLowersTheId() {
+        long before = generator.nextId();
+        clock.addAndGet(-1000);
+
+        long after = generator.nextId();
+
+        assertThat(after).isGreaterThan(before);
+        assertThat(timestamp(after)).isEqualTo(timestamp(before));
+    }
+
+    @Test
+    void nodesSharingAClockNeverCollide() {
+        ReferenceGenerator otherNode = new ReferenceGenerator(NODE_ID + 1, clock::get);
+
+        assertThat(generator.nextId()).isNotEqualTo(otherNode.nextId());
+    }
+
+    @Test
+    void concurrentCallersNeverGetTheSameReference() throws Exception {
+        ReferenceGenerator shared = new ReferenceGenerator(NODE_ID);
+        int threads = 8;
+        int referencesPerThread = 20_000;
+        Set<String> references = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            List<Future<?>> futures = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < referencesPerThread; j++) {
+                        references.add(shared.nextReference("CMD"));
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(references).hasSize(threads * referencesPerThread);
+    }
+
+    @Test
+    void nodeIdOutsideTenBitsIsRejected() {
+        assertThatThrownBy(() -> new ReferenceGenerator(-1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new ReferenceGenerator(ReferenceGenerator.MAX_NODE_ID + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static long timestamp(long id) {
+        return id >>> 22;
+    }
+
+    private static long nodeId(long id) {
+        return (id >>> 12) & ReferenceGenerator.MAX_NODE_ID;
+    }
+
+    private static long sequence(long id) {
+        return id & (SEQUENCES_PER_MILLI - 1);
+    }
+}
@@ -0,0 +1,45 @@
+package com.sirioitalia.api.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SegmentJournalTests {
+    @TempDir
+    Path directory;
+
+    @Test
+    void closedSegmentsAreReplayedByTheNextJournal() throws IOException {
+        SegmentJournal journal = new SegmentJournal(directory);
+        journal.append("first");
+        journal.rotate();
+        journal.append("second");
+        journal.close();
+
+        SegmentJournal reopened = new SegmentJournal(directory);
+        List<String> lines = new ArrayList<>();
+        reopened.replay(lines::add);
+        reopened.close();
+
+        assertThat(lines).containsExactly("first", "second");
+    }
+
+    @Test
+    void directoryCannotBeSharedByTwoJournals() throws IOException {
+        SegmentJournal journal = new SegmentJournal(directory);
+
+        assertThatThrownBy(() -> new SegmentJournal(directory))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("already in use");
+
+        journal.close();
+        new SegmentJournal(directory).close();
+    }
+}